@@ -0,0 +1,75 @@
+plugins {
+    `java-library`
+    // only for the versions of the Spring Boot dependencies, the library isn't an application.
+    id("org.springframework.boot") version "3.0.5" apply false
+    id("io.spring.dependency-management") version "1.1.0"
+    id("com.diffplug.spotless") version "6.16.0"
+}
+
+group = "com.github.sanjayrawat1.bookshop"
+version = "0.0.1-SNAPSHOT"
+java.sourceCompatibility = JavaVersion.VERSION_19
+
+description = "Delayed redeliveries and parking lot for the events a Spring Cloud Stream binding failed to process."
+
+configurations {
+    compileOnly {
+        extendsFrom(configurations.annotationProcessor.get())
+    }
+}
+
+repositories {
+    mavenCentral()
+}
+
+extra["springCloudVersion"] = "2022.0.2"
+
+dependencies {
+    api("org.springframework.cloud:spring-cloud-stream-binder-rabbit")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+
+    compileOnly("org.projectlombok:lombok")
+
+    annotationProcessor("org.projectlombok:lombok")
+    annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
+    annotationProcessor("org.springframework.boot:spring-boot-autoconfigure-processor")
+
+    testImplementation("org.springframework.boot:spring-boot-starter-test")
+}
+
+dependencyManagement {
+    imports {
+        mavenBom(org.springframework.boot.gradle.plugin.SpringBootPlugin.BOM_COORDINATES)
+        mavenBom("org.springframework.cloud:spring-cloud-dependencies:${property("springCloudVersion")}")
+    }
+}
+
+tasks.withType<Test> {
+    useJUnitPlatform()
+}
+
+tasks.build {
+    dependsOn("spotlessApply")
+}
+
+spotless {
+    java {
+        toggleOffOn()
+        importOrder()
+        removeUnusedImports()
+        cleanthat()
+        prettier(mapOf("prettier" to "2.8.4", "prettier-plugin-java" to "2.0.0"))
+            .config(mapOf("parser" to "java", "printWidth" to 160, "tabWidth" to 4, "useTabs" to false))
+        formatAnnotations()
+    }
+    kotlinGradle {
+        target("*.gradle.kts")
+        ktlint()
+    }
+    format("misc") {
+        target("*.gradle", "*.md", ".gitignore")
+        trimTrailingWhitespace()
+        indentWithSpaces()
+        endWithNewline()
+    }
+}
@@ -0,0 +1 @@
+rootProject.name = "bookshop-redelivery"
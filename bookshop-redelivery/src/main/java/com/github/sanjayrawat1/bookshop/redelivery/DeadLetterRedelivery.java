@@ -0,0 +1,97 @@
+package com.github.sanjayrawat1.bookshop.redelivery;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.support.SimpleAmqpHeaderMapper;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.messaging.MessageHeaders;
+
+/**
+ * Consumes the dead letter queue, and sends each message either to the retry queue of its next redelivery, or to the parking lot
+ * once all its redeliveries failed. The retry queues hold the message for the delay of the redelivery, then route it back to the
+ * queue, so that a message failing over and over is delayed more and more instead of stalling the consumer.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+public class DeadLetterRedelivery implements MessageListener {
+
+    /**
+     * Header counting the redeliveries of a message.
+     */
+    public static final String REDELIVERIES_HEADER = "x-redeliveries";
+
+    private static final SimpleAmqpHeaderMapper HEADER_MAPPER = new SimpleAmqpHeaderMapper();
+
+    /**
+     * Headers added by Spring to the messages received, rather than sent with them, which are not sent to the dead letter queue.
+     */
+    private static final Set<String> RECEIPT_HEADERS = Set.of(
+        MessageHeaders.ID,
+        MessageHeaders.TIMESTAMP,
+        MessageHeaders.CONTENT_TYPE,
+        IntegrationMessageHeaderAccessor.DELIVERY_ATTEMPT,
+        IntegrationMessageHeaderAccessor.SOURCE_DATA
+    );
+
+    private final RabbitOperations rabbitOperations;
+
+    private final RedeliveryQueues redeliveryQueues;
+
+    private final Counter retriedCounter;
+
+    private final Counter parkedCounter;
+
+    public DeadLetterRedelivery(RabbitOperations rabbitOperations, RedeliveryQueues redeliveryQueues, MeterRegistry meterRegistry) {
+        this.rabbitOperations = rabbitOperations;
+        this.redeliveryQueues = redeliveryQueues;
+        this.retriedCounter = redeliveryCounter(meterRegistry, "retried");
+        this.parkedCounter = redeliveryCounter(meterRegistry, "parked");
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        var properties = message.getMessageProperties();
+        Integer redeliveries = properties.getHeader(REDELIVERIES_HEADER);
+        int attempt = redeliveries == null ? 1 : redeliveries + 1;
+        if (attempt > redeliveryQueues.maxAttempts()) {
+            log.error("The message {} failed after {} redeliveries, it's parked in {}", properties.getMessageId(), attempt - 1, redeliveryQueues.parkingLot());
+            rabbitOperations.send("", redeliveryQueues.parkingLot(), message);
+            parkedCounter.increment();
+            return;
+        }
+        log.warn("The message {} failed, redelivery {} of {} is delayed", properties.getMessageId(), attempt, redeliveryQueues.maxAttempts());
+        properties.setHeader(REDELIVERIES_HEADER, attempt);
+        rabbitOperations.send("", redeliveryQueues.retryQueue(attempt), message);
+        retriedCounter.increment();
+    }
+
+    /**
+     * Sends to the dead letter queue a message the consumer failed to process, for the consumers which acknowledge the messages
+     * on receipt, so that it can't be rejected to the dead letter queue anymore. The payload is the one received, left unconverted,
+     * and the headers are the ones received, the count of redeliveries included, without which the message would never be parked.
+     */
+    public void deadLetter(org.springframework.messaging.Message<?> message) {
+        var properties = new MessageProperties();
+        HEADER_MAPPER.fromHeaders(message.getHeaders(), properties);
+        properties.getHeaders().keySet().removeAll(RECEIPT_HEADERS);
+        var payload = message.getPayload();
+        var body = payload instanceof byte[] bytes ? bytes : payload.toString().getBytes(StandardCharsets.UTF_8);
+        rabbitOperations.send("", redeliveryQueues.deadLetterQueue(), new Message(body, properties));
+    }
+
+    private static Counter redeliveryCounter(MeterRegistry meterRegistry, String result) {
+        return Counter
+            .builder("bookshop.redelivery")
+            .description("Messages taken from the dead letter queue, either delayed for redelivery or parked")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.sanjayrawat1.bookshop.redelivery;
+
+import com.rabbitmq.client.GetResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Management endpoint to inspect the messages left in the parking lot, and to replay them once the cause of their failure is fixed.
+ * <p>
+ * GET /management/parkedmessages?limit=20 returns the number of parked messages and the first ones, which stay in the parking lot.
+ * POST /management/parkedmessages moves the parked messages (or only the first limit ones) back to the queue, with a new set of
+ * redeliveries.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Endpoint(id = "parkedmessages")
+@RequiredArgsConstructor
+public class ParkedMessagesEndpoint {
+
+    private static final int DEFAULT_PEEK_LIMIT = 20;
+
+    private static final int REPLAY_BATCH_SIZE = 100;
+
+    private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(10);
+
+    private final RabbitOperations rabbitOperations;
+
+    private final RedeliveryQueues redeliveryQueues;
+
+    @ReadOperation
+    public ParkedMessages parkedMessages(@Nullable Integer limit) {
+        var parkingLot = redeliveryQueues.parkingLot();
+        return rabbitOperations.execute(channel -> {
+            long count = channel.messageCount(parkingLot);
+            var messages = new ArrayList<ParkedMessage>();
+            GetResponse last = null;
+            for (int i = 0; i < (limit != null ? limit : DEFAULT_PEEK_LIMIT); i++) {
+                var response = channel.basicGet(parkingLot, false);
+                if (response == null) {
+                    break;
+                }
+                messages.add(new ParkedMessage(response.getProps().getHeaders(), new String(response.getBody(), StandardCharsets.UTF_8)));
+                last = response;
+            }
+            // puts the messages read back in the parking lot, where they keep their position.
+            if (last != null) {
+                channel.basicNack(last.getEnvelope().getDeliveryTag(), true, true);
+            }
+            return new ParkedMessages(parkingLot, count, messages);
+        });
+    }
+
+    /**
+     * Moves the parked messages back to the queue. Only the messages parked when the replay starts are moved, so that the messages
+     * failing again are not replayed in a loop. The messages are republished batch after batch, and taken from the parking lot only
+     * once RabbitMQ confirmed the whole batch. When a confirm doesn't come, the channel is closed and the messages of the batch stay
+     * parked, even those already republished, which may thus be delivered twice.
+     */
+    @WriteOperation
+    public ReplayedMessages replay(@Nullable Integer limit) {
+        var parkingLot = redeliveryQueues.parkingLot();
+        return rabbitOperations.execute(channel -> {
+            channel.confirmSelect();
+            long count = channel.messageCount(parkingLot);
+            long toReplay = limit != null ? Math.min(limit, count) : count;
+            int replayed = 0;
+            while (replayed < toReplay) {
+                GetResponse last = null;
+                int batch = 0;
+                while (batch < REPLAY_BATCH_SIZE && replayed + batch < toReplay) {
+                    var response = channel.basicGet(parkingLot, false);
+                    if (response == null) {
+                        break;
+                    }
+                    var headers = new HashMap<>(response.getProps().getHeaders() != null ? response.getProps().getHeaders() : Map.of());
+                    headers.remove(DeadLetterRedelivery.REDELIVERIES_HEADER);
+                    channel.basicPublish("", redeliveryQueues.queue(), response.getProps().builder().headers(headers).build(), response.getBody());
+                    last = response;
+                    batch++;
+                }
+                if (last == null) {
+                    break;
+                }
+                channel.waitForConfirmsOrDie(CONFIRM_TIMEOUT.toMillis());
+                channel.basicAck(last.getEnvelope().getDeliveryTag(), true);
+                replayed += batch;
+            }
+            return new ReplayedMessages(redeliveryQueues.queue(), replayed);
+        });
+    }
+
+    public record ParkedMessages(String parkingLot, long count, List<ParkedMessage> messages) {}
+
+    public record ParkedMessage(Map<String, Object> headers, String payload) {}
+
+    public record ReplayedMessages(String queue, int replayed) {}
+}
@@ -0,0 +1,80 @@
+package com.github.sanjayrawat1.bookshop.redelivery;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.stream.config.BindingServiceProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Redelivers, with growing delays, the events the binding named by bookshop.redelivery.binding failed to process, and parks them
+ * once all their redeliveries failed, so that a poison message neither stalls its consumer nor is lost. The queues are named after
+ * the queue of the binding, its destination and group.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "bookshop.redelivery", name = "binding")
+@EnableConfigurationProperties(RedeliveryProperties.class)
+public class RedeliveryAutoConfiguration {
+
+    @Bean
+    public RedeliveryQueues redeliveryQueues(BindingServiceProperties bindingServiceProperties, RedeliveryProperties redeliveryProperties) {
+        var binding = bindingServiceProperties.getBindingProperties(redeliveryProperties.getBinding());
+        return RedeliveryQueues.of(binding.getDestination() + "." + binding.getGroup(), redeliveryProperties);
+    }
+
+    /**
+     * The retry queues route the messages back to the queue through the default exchange, once they expired.
+     */
+    @Bean
+    public Declarables redeliveryDeclarables(RedeliveryQueues redeliveryQueues) {
+        var declarables = new ArrayList<Declarable>();
+        IntStream
+            .rangeClosed(1, redeliveryQueues.maxAttempts())
+            .mapToObj(attempt ->
+                QueueBuilder
+                    .durable(redeliveryQueues.retryQueue(attempt))
+                    .ttl((int) redeliveryQueues.retryDelays().get(attempt - 1).toMillis())
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(redeliveryQueues.queue())
+                    .build()
+            )
+            .forEach(declarables::add);
+        declarables.add(QueueBuilder.durable(redeliveryQueues.parkingLot()).build());
+        return new Declarables(declarables);
+    }
+
+    @Bean
+    public DeadLetterRedelivery deadLetterRedelivery(RabbitOperations rabbitOperations, RedeliveryQueues redeliveryQueues, MeterRegistry meterRegistry) {
+        return new DeadLetterRedelivery(rabbitOperations, redeliveryQueues, meterRegistry);
+    }
+
+    @Bean
+    public SimpleMessageListenerContainer deadLetterListenerContainer(
+        ConnectionFactory connectionFactory,
+        RedeliveryQueues redeliveryQueues,
+        DeadLetterRedelivery deadLetterRedelivery
+    ) {
+        var container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(redeliveryQueues.deadLetterQueue());
+        container.setMessageListener(deadLetterRedelivery);
+        // the dead letter queue is declared by the binder, which may bind the consumer after this container is started.
+        container.setMissingQueuesFatal(false);
+        return container;
+    }
+
+    @Bean
+    public ParkedMessagesEndpoint parkedMessagesEndpoint(RabbitOperations rabbitOperations, RedeliveryQueues redeliveryQueues) {
+        return new ParkedMessagesEndpoint(rabbitOperations, redeliveryQueues);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.sanjayrawat1.bookshop.redelivery;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for redelivering the events an input binding failed to process.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bookshop.redelivery")
+public class RedeliveryProperties {
+
+    /**
+     * Name of the input binding whose failed events are redelivered, e.g. packlabel-in-0. The redelivery is only set up when it's given.
+     */
+    private String binding;
+
+    /**
+     * Number of delayed redeliveries of an event that failed to be processed, before it's parked.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Delay before the first redelivery.
+     */
+    private Duration initialDelay = Duration.ofSeconds(5);
+
+    /**
+     * Factor applied to the delay from one redelivery to the next one.
+     */
+    private double multiplier = 4;
+}
@@ -0,0 +1,45 @@
+package com.github.sanjayrawat1.bookshop.redelivery;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The queues a message goes through when the consumer of a queue fails to process it: the dead letter queue (declared by the binder
+ * with auto-bind-dlq), one retry queue for each redelivery, holding the message for the delay of that redelivery before routing it
+ * back to the queue, and the parking lot where the message is left once all its redeliveries failed.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record RedeliveryQueues(String queue, List<Duration> retryDelays) {
+    /**
+     * The queues for the consumer of the given queue, with delays growing exponentially from one redelivery to the next one.
+     */
+    public static RedeliveryQueues of(String queue, RedeliveryProperties redelivery) {
+        var retryDelays = IntStream
+            .range(0, redelivery.getMaxAttempts())
+            .mapToObj(attempt -> Duration.ofMillis((long) (redelivery.getInitialDelay().toMillis() * Math.pow(redelivery.getMultiplier(), attempt))))
+            .toList();
+        return new RedeliveryQueues(queue, retryDelays);
+    }
+
+    public String deadLetterQueue() {
+        return queue + ".dlq";
+    }
+
+    public String parkingLot() {
+        return queue + ".parking-lot";
+    }
+
+    /**
+     * The retry queue of the given redelivery, starting from 1. The delay is part of the name, since the time to live of an existing
+     * queue can't be changed, so that a new delay simply declares a new queue.
+     */
+    public String retryQueue(int attempt) {
+        return queue + ".retry." + retryDelays.get(attempt - 1).toMillis();
+    }
+
+    public int maxAttempts() {
+        return retryDelays.size();
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.sanjayrawat1.bookshop.redelivery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.amqp.support.SimpleAmqpHeaderMapper;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class DeadLetterRedeliveryTests {
+
+    private static final String QUEUE = "order-accepted.dispatcher-service";
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    private final RedeliveryQueues redeliveryQueues = RedeliveryQueues.of(QUEUE, new RedeliveryProperties());
+
+    @Test
+    void whenRedeliveriesLeftThenDelayedMoreAndMore() {
+        assertThat(redeliveryQueues.retryDelays()).containsExactly(Duration.ofSeconds(5), Duration.ofSeconds(20), Duration.ofSeconds(80));
+        var deadLetterRedelivery = new DeadLetterRedelivery(rabbitOperations, redeliveryQueues, new SimpleMeterRegistry());
+        var message = message(null);
+
+        deadLetterRedelivery.onMessage(message);
+        verify(rabbitOperations).send("", QUEUE + ".retry.5000", message);
+        deadLetterRedelivery.onMessage(message);
+        verify(rabbitOperations).send("", QUEUE + ".retry.20000", message);
+        assertThat((Integer) message.getMessageProperties().getHeader(DeadLetterRedelivery.REDELIVERIES_HEADER)).isEqualTo(2);
+    }
+
+    @Test
+    void whenAllRedeliveriesFailedThenParked() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var deadLetterRedelivery = new DeadLetterRedelivery(rabbitOperations, redeliveryQueues, meterRegistry);
+        var message = message(3);
+
+        deadLetterRedelivery.onMessage(message);
+
+        verify(rabbitOperations).send("", QUEUE + ".parking-lot", message);
+        assertThat(meterRegistry.get("bookshop.redelivery").tag("result", "parked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenDeadLetteredByConsumerOverAndOverThenParked() {
+        var sentMessages = new ArrayList<Message>();
+        doAnswer(invocation -> sentMessages.add(invocation.getArgument(2))).when(rabbitOperations).send(anyString(), anyString(), any(Message.class));
+        var meterRegistry = new SimpleMeterRegistry();
+        var deadLetterRedelivery = new DeadLetterRedelivery(rabbitOperations, redeliveryQueues, meterRegistry);
+        var headerMapper = new SimpleAmqpHeaderMapper();
+        org.springframework.messaging.Message<byte[]> received = MessageBuilder
+            .withPayload("{\"orderId\": \"not-a-number\"}".getBytes(StandardCharsets.UTF_8))
+            .setHeader(AmqpHeaders.MESSAGE_ID, "394")
+            .setHeader(IntegrationMessageHeaderAccessor.DELIVERY_ATTEMPT, new AtomicInteger(1))
+            .build();
+
+        for (int attempt = 1; attempt <= redeliveryQueues.maxAttempts() + 1; attempt++) {
+            // the consumer fails to read the message, and sends it to the dead letter queue, whose listener then receives it.
+            deadLetterRedelivery.deadLetter(received);
+            deadLetterRedelivery.onMessage(sentMessages.get(sentMessages.size() - 1));
+            // the retry queue routes the message back to the consumer once it expired.
+            var redelivered = sentMessages.get(sentMessages.size() - 1);
+            received = MessageBuilder.withPayload(redelivered.getBody()).copyHeaders(headerMapper.toHeaders(redelivered.getMessageProperties())).build();
+        }
+
+        var parked = sentMessages.get(sentMessages.size() - 1);
+        verify(rabbitOperations).send("", QUEUE + ".parking-lot", parked);
+        assertThat(parked.getMessageProperties().getMessageId()).isEqualTo("394");
+        assertThat(parked.getMessageProperties().getHeaders()).doesNotContainKey(IntegrationMessageHeaderAccessor.DELIVERY_ATTEMPT);
+        assertThat(meterRegistry.get("bookshop.redelivery").tag("result", "retried").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("bookshop.redelivery").tag("result", "parked").counter().count()).isEqualTo(1);
+    }
+
+    private static Message message(Integer redeliveries) {
+        var properties = new MessageProperties();
+        if (redeliveries != null) {
+            properties.setHeader(DeadLetterRedelivery.REDELIVERIES_HEADER, redeliveries);
+        }
+        return new Message("{\"orderId\": \"not-a-number\"}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.sanjayrawat1.bookshop.redelivery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class ParkedMessagesEndpointTests {
+
+    private static final String QUEUE = "order-accepted.dispatcher-service";
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    @Mock
+    private Channel channel;
+
+    private ParkedMessagesEndpoint parkedMessagesEndpoint;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(rabbitOperations.execute(any(ChannelCallback.class))).thenAnswer(invocation ->
+            invocation.<ChannelCallback<?>>getArgument(0).doInRabbit(channel)
+        );
+        parkedMessagesEndpoint = new ParkedMessagesEndpoint(rabbitOperations, RedeliveryQueues.of(QUEUE, new RedeliveryProperties()));
+    }
+
+    @Test
+    void whenReplayedThenParkedMessagesAcknowledgedOnceConfirmed() throws Exception {
+        when(channel.messageCount(QUEUE + ".parking-lot")).thenReturn(2L);
+        when(channel.basicGet(QUEUE + ".parking-lot", false)).thenReturn(parked(1), parked(2));
+
+        var replayed = parkedMessagesEndpoint.replay(null);
+
+        assertThat(replayed.replayed()).isEqualTo(2);
+        var inOrder = inOrder(channel);
+        inOrder.verify(channel).confirmSelect();
+        inOrder.verify(channel, times(2)).basicPublish(eq(""), eq(QUEUE), any(AMQP.BasicProperties.class), any(byte[].class));
+        inOrder.verify(channel).waitForConfirmsOrDie(anyLong());
+        inOrder.verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    void whenReplayNotConfirmedThenMessagesStayParked() throws Exception {
+        when(channel.messageCount(QUEUE + ".parking-lot")).thenReturn(1L);
+        when(channel.basicGet(QUEUE + ".parking-lot", false)).thenReturn(parked(1));
+        doThrow(new IOException("nack")).when(channel).waitForConfirmsOrDie(anyLong());
+
+        assertThatThrownBy(() -> parkedMessagesEndpoint.replay(null)).isInstanceOf(IOException.class);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    private static GetResponse parked(long deliveryTag) {
+        var properties = new AMQP.BasicProperties.Builder().headers(Map.of(DeadLetterRedelivery.REDELIVERIES_HEADER, 3)).build();
+        var body = "{\"orderId\": 394}".getBytes(StandardCharsets.UTF_8);
+        return new GetResponse(new Envelope(deliveryTag, false, "", QUEUE + ".parking-lot"), properties, body, 0);
+    }
+}
@@ -3,6 +3,7 @@ plugins {
     id("org.springframework.boot") version "3.0.5"
     id("io.spring.dependency-management") version "1.1.0"
     id("com.diffplug.spotless") version "6.16.0"
+    id("me.champeau.jmh") version "0.7.0"
 }
 
 group = "com.github.sanjayrawat1.bookshop"
@@ -25,6 +26,8 @@ extra["springCloudVersion"] = "2022.0.2"
 extra["testcontainersVersion"] = "1.17.6"
 extra["testKeycloakVersion"] = "2.5.0"
 extra["otelVersion"] = "1.24.0"
+// 42.6.0 guards the connection I/O with ReentrantLock instead of synchronized, so that virtual threads don't pin their carrier thread.
+extra["postgresql.version"] = "42.6.0"
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
@@ -36,6 +39,9 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-data-jdbc")
     implementation("org.springframework.boot:spring-boot-starter-oauth2-resource-server")
     implementation("org.flywaydb:flyway-core")
+    implementation("org.springframework.boot:spring-boot-starter-cache")
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("org.springframework.cloud:spring-cloud-stream-binder-rabbit")
 
     runtimeOnly("org.postgresql:postgresql")
     runtimeOnly("io.micrometer:micrometer-registry-prometheus")
@@ -48,6 +54,7 @@ dependencies {
 
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.security:spring-security-test")
+    testImplementation("org.springframework.cloud:spring-cloud-stream-test-binder")
     testImplementation("org.testcontainers:junit-jupiter")
     testImplementation("org.testcontainers:postgresql")
     testImplementation("com.github.dasniko:testcontainers-keycloak:${property("testKeycloakVersion")}")
@@ -89,6 +96,17 @@ springBoot {
     buildInfo()
 }
 
+jmh {
+    jmhVersion.set("1.36")
+    // a single fork with a short warmup keeps a full run within minutes, while still letting the JIT compile the hot paths.
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // machine-readable results, so that the runs of two commits can be diffed (e.g. with JMH Visualizer).
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
 spotless {
     java {
         toggleOffOn()
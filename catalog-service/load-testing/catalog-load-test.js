@@ -0,0 +1,27 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+// Load test comparing the platform-thread and the virtual-thread modes of Catalog Service.
+// Requests arrive at a constant rate regardless of how fast they are served, so that queueing shows up as latency and errors
+// instead of silently lowering the load, as it would with a fixed number of looping virtual users.
+export const options = {
+    scenarios: {
+        catalog: {
+            executor: 'constant-arrival-rate',
+            rate: Number(__ENV.RATE || 500),
+            timeUnit: '1s',
+            duration: __ENV.DURATION || '1m',
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:9001';
+
+export default function () {
+    // the search isn't cached, hence every request goes to PostgreSQL.
+    const response = http.get(`${BASE_URL}/books/search?q=spring`);
+    check(response, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,77 @@
+package com.github.sanjayrawat1.bookshop.catalog.web.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.sanjayrawat1.bookshop.catalog.domain.Book;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Measures the JSON mapping of the books, as done by the REST endpoints: a single book, and a page of books as returned by GET /books.
+ * <p>
+ * Run with {@code ./gradlew jmh}, the results are written to build/results/jmh/results.json.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookJsonBenchmark {
+
+    private ObjectWriter bookWriter;
+
+    private ObjectReader bookReader;
+
+    private ObjectWriter pageWriter;
+
+    private Book book;
+
+    private List<Book> page;
+
+    private byte[] bookJson;
+
+    @Setup
+    public void setup() throws IOException {
+        // the same defaults Spring Boot applies to the ObjectMapper it auto-configures.
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        bookWriter = objectMapper.writerFor(Book.class);
+        bookReader = objectMapper.readerFor(Book.class);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Book.class));
+        book = book(1);
+        page = IntStream.rangeClosed(1, 20).mapToObj(BookJsonBenchmark::book).toList();
+        bookJson = bookWriter.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws IOException {
+        return bookWriter.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public Book deserializeBook() throws IOException {
+        return bookReader.readValue(bookJson);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    private static Book book(long id) {
+        var now = Instant.parse("2023-04-01T10:15:30Z");
+        var isbn = String.valueOf(1234567890L + id);
+        return new Book(id, isbn, "Cloud Native Spring in Action", "Thomas Vitale", 9.90, "Manning", now, now, "sanjay", "sanjay", 1);
+    }
+}
@@ -23,4 +23,105 @@ public class BookshopProperties {
      * A message to welcome users.
      */
     private String greeting;
+
+    /**
+     * Settings for listing the books in the catalog.
+     */
+    private final Pagination pagination = new Pagination();
+
+    /**
+     * Settings for importing feeds of books in the catalog.
+     */
+    private final BulkImport bulkImport = new BulkImport();
+
+    /**
+     * Settings for editing the books in the catalog.
+     */
+    private final Upsert upsert = new Upsert();
+
+    /**
+     * Settings for searching the books in the catalog.
+     */
+    private final Search search = new Search();
+
+    /**
+     * Settings for handling the requests with virtual threads.
+     */
+    private final VirtualThreads virtualThreads = new VirtualThreads();
+
+    @Getter
+    @Setter
+    public static class Pagination {
+
+        /**
+         * Number of books returned in a page when the client doesn't ask for a specific size.
+         */
+        private int defaultSize = 20;
+
+        /**
+         * Upper bound for the page size a client can ask for.
+         */
+        private int maxSize = 100;
+
+        /**
+         * Upper bound for the number of ISBNs a client can look up in a single request.
+         */
+        private int maxLookupSize = 100;
+
+        /**
+         * Number of rows fetched from the database in each round trip when streaming the whole catalog.
+         */
+        private int fetchSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class BulkImport {
+
+        /**
+         * Number of books inserted with a single batch of statements, each batch being committed in its own transaction.
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Upper bound for the number of skipped or rejected lines detailed in the import report. All of them are counted anyway.
+         */
+        private int maxReportedErrors = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Upsert {
+
+        /**
+         * Number of times the upsert of a book is attempted when it fails because of a concurrent transaction, e.g. a deadlock.
+         */
+        private int maxAttempts = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class Search {
+
+        /**
+         * Where the books are searched: with the PostgreSQL full-text search, or with an index held in memory for development.
+         */
+        private Mode mode = Mode.DATABASE;
+
+        public enum Mode {
+            DATABASE,
+            IN_MEMORY,
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class VirtualThreads {
+
+        /**
+         * Whether the requests, and the JDBC calls they make, run on virtual threads rather than on the Tomcat worker threads.
+         * It requires the JVM to be started with --enable-preview.
+         */
+        private boolean enabled = false;
+    }
 }
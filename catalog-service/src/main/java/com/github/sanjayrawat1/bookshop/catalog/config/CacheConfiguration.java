@@ -0,0 +1,17 @@
+package com.github.sanjayrawat1.bookshop.catalog.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache configuration.
+ * <p>
+ * Spring Boot backs the cache abstraction with Caffeine, configured through the spring.cache properties. The caches are created at startup
+ * (spring.cache.cache-names), so that their hit, miss and eviction statistics are registered with Micrometer and exposed through the
+ * prometheus actuator endpoint.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {}
@@ -11,4 +11,6 @@ public final class Constants {
 
     public static final String SPRING_PROFILE_TEST_DATA = "test-data";
     public static final String SPRING_PROFILE_INTEGRATION_TEST = "integration";
+
+    public static final String CACHE_BOOKS_BY_ISBN = "booksByIsbn";
 }
@@ -0,0 +1,57 @@
+package com.github.sanjayrawat1.bookshop.catalog.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Opt-in virtual-thread mode: every request, and the JDBC calls it makes, runs on its own virtual thread instead of on one of
+ * the Tomcat worker threads. A request waiting for the database then parks its virtual thread and releases the carrier thread,
+ * so that a latency spike of the database doesn't exhaust the request threads and make the following requests queue.
+ * <p>
+ * The number of concurrent requests is then bounded by server.tomcat.max-connections, while the number of concurrent database
+ * calls is still bounded by the Hikari pool, whose size depends on what the database can take rather than on the number of threads.
+ * <p>
+ * Virtual threads are a preview feature of Java 19, hence the executor is looked up reflectively, and the JVM must be started
+ * with --enable-preview (e.g. JAVA_TOOL_OPTIONS=--enable-preview) for this mode to be enabled.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "bookshop.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    /**
+     * Starts a new virtual thread for each task. Shut down by Spring when the application context is closed.
+     */
+    @Bean
+    ExecutorService virtualThreadExecutor() throws ReflectiveOperationException {
+        var executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        log.info("Handling requests with virtual threads");
+        return executor;
+    }
+
+    /**
+     * Replaces the Tomcat worker thread pool, which server.tomcat.threads.max doesn't apply to anymore.
+     */
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    /**
+     * Runs the asynchronous requests, like the NDJSON stream of the whole catalog, on virtual threads too.
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+/**
+ * The kinds of change to a book of the catalog.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public enum BookChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+}
@@ -0,0 +1,23 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+/**
+ * Published by {@link BookService} whenever a book of the catalog is created, updated or deleted.
+ *
+ * @param type the kind of change.
+ * @param isbn the ISBN of the book.
+ * @param version the version of the book after the change, or the last version of the book when it was deleted. Consumers compare it
+ * with the version of the book they hold, so that they ignore the changes received late or twice.
+ * @param book the book after the change, or null when it was deleted.
+ * @author Sanjay Singh Rawat
+ */
+public record BookChangedEvent(BookChangeType type, String isbn, int version, Book book) {
+    public static BookChangedEvent saved(Book book) {
+        // a book starts at version 1, including when it's created by an upsert.
+        var type = book.version() == 1 ? BookChangeType.CREATED : BookChangeType.UPDATED;
+        return new BookChangedEvent(type, book.isbn(), book.version(), book);
+    }
+
+    public static BookChangedEvent deleted(String isbn, int version) {
+        return new BookChangedEvent(BookChangeType.DELETED, isbn, version, null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of importing a feed of books in the catalog.
+ *
+ * @param imported the number of books added to the catalog.
+ * @param skipped the number of books left out because their ISBN was already in the catalog.
+ * @param rejected the number of lines left out because they could not be read or didn't hold a valid book.
+ * @param errors why each line was skipped or rejected, in the order of the feed. Only the first ones are reported
+ * when there are too many of them.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record BookImportReport(long imported, long skipped, long rejected, List<RowError> errors) {
+    /**
+     * @param line the number of the line in the feed, starting from 1.
+     * @param isbn the ISBN of the book on the line, if it could be read.
+     * @param message why the line was skipped or rejected.
+     */
+    public record RowError(long line, String isbn, String message) {}
+
+    /**
+     * Accumulates the outcome of each line while the feed is imported.
+     */
+    static class Builder {
+
+        private final int maxErrors;
+
+        private final List<RowError> errors = new ArrayList<>();
+
+        private long imported;
+
+        private long skipped;
+
+        private long rejected;
+
+        Builder(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void imported() {
+            imported++;
+        }
+
+        void skipped(BookImportRow row, String message) {
+            skipped++;
+            addError(row, message);
+        }
+
+        void rejected(BookImportRow row, String message) {
+            rejected++;
+            addError(row, message);
+        }
+
+        BookImportReport build() {
+            return new BookImportReport(imported, skipped, rejected, List.copyOf(errors));
+        }
+
+        private void addError(BookImportRow row, String message) {
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError(row.line(), row.book() != null ? row.book().isbn() : null, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+/**
+ * A line of a feed of books being imported in the catalog: either the book it holds, or the reason why it could not be read.
+ *
+ * @param line the number of the line in the feed, starting from 1.
+ * @param book the book read from the line, or null when it could not be read.
+ * @param error why the line could not be read, or null when it holds a book.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record BookImportRow(long line, Book book, String error) {
+    public static BookImportRow of(long line, Book book) {
+        return new BookImportRow(line, book, null);
+    }
+
+    public static BookImportRow unreadable(long line, String error) {
+        return new BookImportRow(line, null, error);
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+/**
+ * Exception thrown when looking up more books at once than allowed.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public class BookLookupTooLargeException extends RuntimeException {
+
+    public BookLookupTooLargeException(int maxLookupSize) {
+        super("No more than " + maxLookupSize + " books can be looked up at once.");
+    }
+}
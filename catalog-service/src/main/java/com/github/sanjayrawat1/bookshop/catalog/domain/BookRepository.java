@@ -1,7 +1,7 @@
 package com.github.sanjayrawat1.bookshop.catalog.domain;
 
+import java.util.List;
 import java.util.Optional;
-import org.springframework.data.jdbc.repository.query.Modifying;
 import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.transaction.annotation.Transactional;
@@ -11,13 +11,34 @@ import org.springframework.transaction.annotation.Transactional;
  *
  * @author Sanjay Singh Rawat
  */
-public interface BookRepository extends CrudRepository<Book, Long> {
+public interface BookRepository extends CrudRepository<Book, Long>, CustomBookRepository {
     Optional<Book> findByIsbn(String isbn);
 
     boolean existsByIsbn(String isbn);
 
-    @Modifying
+    /**
+     * Keyset (seek) pagination: instead of skipping rows with an offset, it continues from the last id seen by the client,
+     * so that every page is served by an index range scan on the primary key no matter how deep the client has paged.
+     */
+    @Query("select * from book where id > :afterId order by id limit :limit")
+    List<Book> findPageAfter(long afterId, int limit);
+
+    /**
+     * Full-text search over the weighted search_vector column, served by its GIN index. The matches are ranked with ts_rank,
+     * which favours the words found in the title, then in the author, then in the publisher.
+     *
+     * @param query a PostgreSQL tsquery, e.g. {@code spring:* & act:*}.
+     */
+    @Query(
+        "select book.* from book, to_tsquery('simple', :query) query where book.search_vector @@ query " +
+        "order by ts_rank(book.search_vector, query) desc, book.id limit :limit offset :offset"
+    )
+    List<Book> search(String query, int limit, long offset);
+
+    /**
+     * Deletes the book with the given ISBN, and returns the version it was deleted at, or an empty Optional when there was no such book.
+     */
     @Transactional
-    @Query("delete from Book where isbn = :isbn")
-    void deleteByIsbn(String isbn);
+    @Query("delete from book where isbn = :isbn returning version")
+    Optional<Integer> deleteByIsbn(String isbn);
 }
@@ -0,0 +1,52 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Full-text search over the title, author and publisher of the books in the catalog.
+ * <p>
+ * A book matches when each search term is a prefix of a word in any of those fields, so that results show up while the user is
+ * still typing. The matches are ranked by where the terms are found: in the title first, then in the author, then in the publisher.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public interface BookSearch {
+    /**
+     * Upper bound for the number of terms of a search, so that a long query cannot make the search arbitrarily expensive.
+     */
+    int MAX_TERMS = 8;
+
+    /**
+     * Returns a page of the books matching all the given terms, the best ranked first, ties being broken by id.
+     */
+    List<Book> search(List<String> terms, int limit, long offset);
+
+    /**
+     * Called after a book has been added or updated, for implementations that maintain their own index.
+     */
+    default void indexed(Book book) {}
+
+    /**
+     * Called after a book has been removed, for implementations that maintain their own index.
+     */
+    default void removed(String isbn) {}
+
+    /**
+     * Splits a text into lower case terms made of letters and digits only, hence safe to use in any query syntax.
+     */
+    static List<String> terms(String text) {
+        var terms = new ArrayList<String>();
+        var term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            if (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                term.append(text.charAt(i));
+            } else if (!term.isEmpty()) {
+                terms.add(term.toString().toLowerCase(Locale.ROOT));
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+}
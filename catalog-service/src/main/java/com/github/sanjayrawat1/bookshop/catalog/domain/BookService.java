@@ -1,57 +1,227 @@
 package com.github.sanjayrawat1.bookshop.catalog.domain;
 
+import static com.github.sanjayrawat1.bookshop.catalog.config.Constants.CACHE_BOOKS_BY_ISBN;
+
+import com.github.sanjayrawat1.bookshop.catalog.config.BookshopProperties;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Implementing the use cases for the {@link Book} domain.
  *
  * @author Sanjay Singh Rawat
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class BookService {
 
     private final BookRepository bookRepository;
 
-    public Iterable<Book> viewBookList() {
-        return bookRepository.findAll();
+    private final BookshopProperties bookshopProperties;
+
+    private final Validator validator;
+
+    private final BookSearch bookSearch;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Returns the page of books following the given cursor, ordered by id.
+     *
+     * @param afterId the id of the last book of the previous page, or null to start from the beginning of the catalog.
+     * @param size the requested page size, or null to use the default one. It's capped to the configured maximum.
+     * @return the page of books, telling whether there is a next one.
+     */
+    public Slice<Book> viewBookList(Long afterId, Integer size) {
+        var pagination = bookshopProperties.getPagination();
+        int pageSize = Math.min(size == null || size < 1 ? pagination.getDefaultSize() : size, pagination.getMaxSize());
+        // fetches one extra row to know whether there is a next page without running a count query.
+        var books = bookRepository.findPageAfter(afterId == null ? 0 : afterId, pageSize + 1);
+        boolean hasNext = books.size() > pageSize;
+        return new SliceImpl<>(hasNext ? books.subList(0, pageSize) : books, PageRequest.ofSize(pageSize), hasNext);
     }
 
+    /**
+     * Returns a page of the books matching the given text, the best matches first. The page is found by offset, since the results
+     * are ordered by rank rather than by a unique key, and searches are rarely paged deeply.
+     *
+     * @param text the words to look for in the title, author and publisher of the books, possibly only the beginning of the last one.
+     * @param page the number of the requested page, starting from 0, or null for the first page.
+     * @param size the requested page size, or null to use the default one. It's capped to the configured maximum.
+     * @return the page of books, telling whether there is a next one.
+     */
+    public Slice<Book> searchBooks(String text, Integer page, Integer size) {
+        var pagination = bookshopProperties.getPagination();
+        int pageSize = Math.min(size == null || size < 1 ? pagination.getDefaultSize() : size, pagination.getMaxSize());
+        int pageNumber = page == null || page < 0 ? 0 : page;
+        var terms = BookSearch.terms(text);
+        if (terms.isEmpty()) {
+            return new SliceImpl<>(List.of(), PageRequest.of(pageNumber, pageSize), false);
+        }
+        var books = bookSearch.search(terms.subList(0, Math.min(terms.size(), BookSearch.MAX_TERMS)), pageSize + 1, (long) pageNumber * pageSize);
+        boolean hasNext = books.size() > pageSize;
+        return new SliceImpl<>(hasNext ? books.subList(0, pageSize) : books, PageRequest.of(pageNumber, pageSize), hasNext);
+    }
+
+    /**
+     * Hands every book in the catalog to the given action, reading them from a database cursor instead of loading them all in memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamBookList(Consumer<Book> action) {
+        bookRepository.streamAll(bookshopProperties.getPagination().getFetchSize(), action);
+    }
+
+    /**
+     * The catalog is read far more often than it's changed, so the books are cached by ISBN. The methods changing the catalog keep the
+     * cache in line with the database: they put the saved book in the cache or evict the removed one, and leave it untouched when they fail.
+     * They also publish a {@link BookChangedEvent}, so that the other services caching books can do the same.
+     */
+    @Cacheable(cacheNames = CACHE_BOOKS_BY_ISBN)
     public Book viewBookDetails(String isbn) {
         return bookRepository.findByIsbn(isbn).orElseThrow(() -> new BookNotFoundException(isbn));
     }
 
+    /**
+     * Returns the books with the given ISBNs, skipping the ones that are not in the catalog.
+     */
+    public List<Book> viewBookDetails(Set<String> isbns) {
+        if (isbns.size() > bookshopProperties.getPagination().getMaxLookupSize()) {
+            throw new BookLookupTooLargeException(bookshopProperties.getPagination().getMaxLookupSize());
+        }
+        return isbns.isEmpty() ? List.of() : bookRepository.findAllByIsbns(isbns);
+    }
+
+    @CachePut(cacheNames = CACHE_BOOKS_BY_ISBN, key = "#result.isbn()")
     public Book addBookToCatalog(Book book) {
         if (bookRepository.existsByIsbn(book.isbn())) {
             throw new BookAlreadyExistsException(book.isbn());
         }
-        return bookRepository.save(book);
+        var savedBook = bookRepository.save(book);
+        bookSearch.indexed(savedBook);
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
+        return savedBook;
     }
 
+    /**
+     * Adds the books of a feed to the catalog, reading them one line at a time and inserting them in chunks. Each chunk is written
+     * with a single batch of statements in its own transaction, so a failure only loses the chunk being written.
+     * <p>
+     * The lines that don't hold a valid book are rejected, and the books whose ISBN is already in the catalog are skipped,
+     * without affecting the other lines. The imported books are new, hence there is nothing in the cache to update.
+     */
+    public BookImportReport importBooks(Iterator<BookImportRow> rows) {
+        var bulkImport = bookshopProperties.getBulkImport();
+        var report = new BookImportReport.Builder(bulkImport.getMaxReportedErrors());
+        var chunk = new ArrayList<BookImportRow>(bulkImport.getChunkSize());
+        while (rows.hasNext()) {
+            var row = rows.next();
+            var error = row.error() != null ? row.error() : validate(row.book());
+            if (error != null) {
+                report.rejected(row, error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == bulkImport.getChunkSize()) {
+                importChunk(chunk, report);
+            }
+        }
+        importChunk(chunk, report);
+        return report.build();
+    }
+
+    @CacheEvict(cacheNames = CACHE_BOOKS_BY_ISBN)
     public void removeBookFromCatalog(String isbn) {
-        bookRepository.deleteByIsbn(isbn);
+        bookRepository
+            .deleteByIsbn(isbn)
+            .ifPresent(version -> {
+                bookSearch.removed(isbn);
+                eventPublisher.publishEvent(BookChangedEvent.deleted(isbn, version));
+            });
     }
 
+    /**
+     * Updates the book with the given ISBN, or adds it to the catalog when it doesn't exist yet, with a single statement.
+     * Concurrent edits of the same book are serialized by the database rather than racing between a read and a write.
+     * <p>
+     * The book keeps the ISBN it's edited under. When the book comes with the version it was read at, it's only updated
+     * if nobody else changed it in the meantime. Otherwise, the edit is rejected with a {@link BookVersionConflictException}.
+     */
+    @CachePut(cacheNames = CACHE_BOOKS_BY_ISBN, key = "#result.isbn()")
     public Book editBookDetails(String isbn, Book book) {
-        return bookRepository
-            .findByIsbn(isbn)
-            .map(existingBook -> {
-                var bookToUpdate = new Book(
-                    existingBook.id(),
-                    existingBook.isbn(),
-                    book.title(),
-                    book.author(),
-                    book.price(),
-                    book.publisher(),
-                    existingBook.createdDate(),
-                    existingBook.lastModifiedDate(),
-                    existingBook.createdBy(),
-                    existingBook.lastModifiedBy(),
-                    existingBook.version()
-                );
-                return bookRepository.save(bookToUpdate);
-            })
-            .orElseGet(() -> addBookToCatalog(book));
+        var bookToUpsert = new Book(null, isbn, book.title(), book.author(), book.price(), book.publisher(), null, null, null, null, book.version());
+        var upsertedBook = upsert(bookToUpsert).orElseThrow(() -> new BookVersionConflictException(isbn, book.version()));
+        bookSearch.indexed(upsertedBook);
+        eventPublisher.publishEvent(BookChangedEvent.saved(upsertedBook));
+        return upsertedBook;
+    }
+
+    /**
+     * The upsert runs in its own transaction, hence it can be retried as a whole when the database aborts it because of a concurrent
+     * transaction (a deadlock or a lock timeout). A version conflict is not retried, since it would fail the same way every time.
+     */
+    private Optional<Book> upsert(Book book) {
+        int maxAttempts = bookshopProperties.getUpsert().getMaxAttempts();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return bookRepository.upsert(book);
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.warn("Retrying the upsert of the book with ISBN {} after attempt {} failed: {}", book.isbn(), attempt, ex.getMessage());
+            }
+        }
+    }
+
+    private void importChunk(List<BookImportRow> chunk, BookImportReport.Builder report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        var insertCounts = bookRepository.insertAllSkippingExisting(chunk.stream().map(BookImportRow::book).toList());
+        var importedIsbns = new HashSet<String>();
+        for (int i = 0; i < insertCounts.length; i++) {
+            var row = chunk.get(i);
+            if (insertCounts[i] == 0) {
+                report.skipped(row, "A book with ISBN " + row.book().isbn() + " already exists.");
+            } else {
+                report.imported();
+                importedIsbns.add(row.book().isbn());
+            }
+        }
+        // the batch of inserts doesn't return the rows, hence they are read back, so that the books are indexed and published as stored,
+        // with their id, version and audit metadata, rather than as they were parsed from the feed.
+        if (!importedIsbns.isEmpty()) {
+            for (var book : bookRepository.findAllByIsbns(importedIsbns)) {
+                bookSearch.indexed(book);
+                eventPublisher.publishEvent(BookChangedEvent.saved(book));
+            }
+        }
+        chunk.clear();
+    }
+
+    private String validate(Book book) {
+        var violations = validator.validate(book);
+        return violations.isEmpty() ? null : violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(" "));
     }
 }
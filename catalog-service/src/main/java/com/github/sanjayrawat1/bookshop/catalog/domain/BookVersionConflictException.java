@@ -0,0 +1,13 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+/**
+ * Exception thrown when editing a book based on a version that is no longer the current one.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public class BookVersionConflictException extends RuntimeException {
+
+    public BookVersionConflictException(String isbn, int version) {
+        super("The book with ISBN " + isbn + " is no longer at version " + version + ".");
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Operations on {@link Book} that cannot be expressed as Spring Data JDBC query methods.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public interface CustomBookRepository {
+    /**
+     * Reads all the books ordered by id through a database cursor, handing each of them to the given action as soon as it's read.
+     * Only {@code fetchSize} rows are held in memory at any time. It must be called within a transaction, since PostgreSQL
+     * ignores the fetch size and reads the whole result set when the connection is in auto-commit mode.
+     */
+    void streamAll(int fetchSize, Consumer<Book> action);
+
+    /**
+     * Finds the books with any of the given ISBNs in a single query. The ISBNs are bound as one array parameter,
+     * so the statement is the same regardless of how many books are looked up.
+     */
+    List<Book> findAllByIsbns(Collection<String> isbns);
+
+    /**
+     * Inserts the given books with a single batch of {@code INSERT ... ON CONFLICT (isbn) DO NOTHING} statements, sent to the database
+     * in one round trip and committed together. The books whose ISBN is already in the catalog are left untouched.
+     * The audit metadata is set the same way Spring Data JDBC does when saving a new book.
+     *
+     * @return for each book, in the same order, 1 when it was inserted or 0 when its ISBN was already in the catalog.
+     */
+    @Transactional
+    int[] insertAllSkippingExisting(List<Book> books);
+
+    /**
+     * Inserts the book, or updates the book with the same ISBN, with a single {@code INSERT ... ON CONFLICT (isbn) DO UPDATE} statement.
+     * An update increments the version and the last modified audit metadata, while the id and the creation audit metadata are kept.
+     * <p>
+     * As with Spring Data JDBC, the version of the given book is the one expected in the database: when it's not 0, the existing book
+     * is only updated if it's still at that version. Otherwise, nothing is changed and an empty Optional is returned.
+     *
+     * @return the inserted or updated book, as stored in the database.
+     */
+    @Transactional
+    Optional<Book> upsert(Book book);
+}
@@ -0,0 +1,137 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.jdbc.core.convert.EntityRowMapper;
+import org.springframework.data.jdbc.core.convert.JdbcConverter;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of {@link CustomBookRepository}, picked up by Spring Data as a fragment of {@link BookRepository}.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@RequiredArgsConstructor
+public class CustomBookRepositoryImpl implements CustomBookRepository {
+
+    private static final String SELECT_ALL_ORDERED_BY_ID = "select * from book order by id";
+
+    private static final String SELECT_BY_ISBNS = "select * from book where isbn = any(?)";
+
+    // a new book starts at version 1, as when it's saved by Spring Data JDBC.
+    private static final String INSERT_SKIPPING_EXISTING =
+        "insert into book (isbn, title, author, price, publisher, created_date, last_modified_date, created_by, last_modified_by, version) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?, ?, 1) on conflict (isbn) do nothing";
+
+    private static final String UPSERT =
+        "insert into book as b (isbn, title, author, price, publisher, created_date, last_modified_date, created_by, last_modified_by, version) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?, ?, 1) on conflict (isbn) do update set " +
+        "title = excluded.title, author = excluded.author, price = excluded.price, publisher = excluded.publisher, " +
+        "last_modified_date = excluded.last_modified_date, last_modified_by = excluded.last_modified_by, version = b.version + 1 " +
+        "where ? = 0 or b.version = ? returning *";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RelationalMappingContext mappingContext;
+
+    private final JdbcConverter jdbcConverter;
+
+    private final AuditorAware<String> auditorAware;
+
+    @Override
+    public void streamAll(int fetchSize, Consumer<Book> action) {
+        var rowMapper = bookRowMapper();
+        jdbcTemplate.query(
+            connection -> {
+                var statement = connection.prepareStatement(SELECT_ALL_ORDERED_BY_ID, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            },
+            (ResultSet resultSet) -> action.accept(rowMapper.mapRow(resultSet, resultSet.getRow()))
+        );
+    }
+
+    @Override
+    public List<Book> findAllByIsbns(Collection<String> isbns) {
+        return jdbcTemplate.query(
+            connection -> {
+                var statement = connection.prepareStatement(SELECT_BY_ISBNS);
+                statement.setArray(1, connection.createArrayOf("varchar", isbns.toArray()));
+                return statement;
+            },
+            bookRowMapper()
+        );
+    }
+
+    @Override
+    public int[] insertAllSkippingExisting(List<Book> books) {
+        var now = Timestamp.from(Instant.now());
+        var auditor = auditorAware.getCurrentAuditor().orElse(null);
+        return jdbcTemplate.batchUpdate(
+            INSERT_SKIPPING_EXISTING,
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int index) throws SQLException {
+                    var book = books.get(index);
+                    statement.setString(1, book.isbn());
+                    statement.setString(2, book.title());
+                    statement.setString(3, book.author());
+                    statement.setDouble(4, book.price());
+                    statement.setString(5, book.publisher());
+                    statement.setTimestamp(6, now);
+                    statement.setTimestamp(7, now);
+                    statement.setString(8, auditor);
+                    statement.setString(9, auditor);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return books.size();
+                }
+            }
+        );
+    }
+
+    @Override
+    public Optional<Book> upsert(Book book) {
+        var now = Timestamp.from(Instant.now());
+        var auditor = auditorAware.getCurrentAuditor().orElse(null);
+        var books = jdbcTemplate.query(
+            UPSERT,
+            bookRowMapper(),
+            book.isbn(),
+            book.title(),
+            book.author(),
+            book.price(),
+            book.publisher(),
+            now,
+            now,
+            auditor,
+            auditor,
+            book.version(),
+            book.version()
+        );
+        return books.stream().findFirst();
+    }
+
+    /**
+     * Reuses the same mapping that Spring Data JDBC applies to the results of the repository query methods.
+     */
+    @SuppressWarnings("unchecked")
+    private EntityRowMapper<Book> bookRowMapper() {
+        var entity = (RelationalPersistentEntity<Book>) mappingContext.getRequiredPersistentEntity(Book.class);
+        return new EntityRowMapper<>(entity, jdbcConverter);
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches the books with the PostgreSQL full-text search, over the weighted tsvector column maintained by the database
+ * and indexed with GIN. Every term is turned into a prefix match, e.g. "spring act" becomes {@code spring:* & act:*}.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bookshop.search.mode", havingValue = "database", matchIfMissing = true)
+public class DatabaseBookSearch implements BookSearch {
+
+    private final BookRepository bookRepository;
+
+    @Override
+    public List<Book> search(List<String> terms, int limit, long offset) {
+        var query = terms.stream().map(term -> term + ":*").collect(Collectors.joining(" & "));
+        return bookRepository.search(query, limit, offset);
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches the books with an inverted index held in memory, for development without the full-text search of PostgreSQL.
+ * The index is built from the catalog at startup, and then kept up to date by {@link BookService}.
+ * <p>
+ * The terms are kept sorted, so that all the words starting with a prefix are found with a single range lookup.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bookshop.search.mode", havingValue = "in-memory")
+public class InMemoryBookSearch implements BookSearch {
+
+    private static final int TITLE_WEIGHT = 4;
+
+    private static final int AUTHOR_WEIGHT = 2;
+
+    private static final int PUBLISHER_WEIGHT = 1;
+
+    private static final Comparator<Map.Entry<String, Integer>> BY_SCORE = Map.Entry.<String, Integer>comparingByValue().reversed();
+
+    private final BookRepository bookRepository;
+
+    private final Map<String, Book> booksByIsbn = new ConcurrentHashMap<>();
+
+    /**
+     * For each word, the ISBNs of the books containing it, with the weight of the fields it's found in.
+     */
+    private final NavigableMap<String, Map<String, Integer>> index = new ConcurrentSkipListMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        bookRepository.findAll().forEach(this::indexed);
+        log.info("Indexed {} books for in-memory search", booksByIsbn.size());
+    }
+
+    @Override
+    public List<Book> search(List<String> terms, int limit, long offset) {
+        Map<String, Integer> scores = null;
+        for (var term : terms) {
+            var termScores = new HashMap<String, Integer>();
+            index
+                .subMap(term, true, term + Character.MAX_VALUE, true)
+                .values()
+                .forEach(postings -> postings.forEach((isbn, weight) -> termScores.merge(isbn, weight, Integer::sum)));
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((isbn, score) -> score + termScores.get(isbn));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        if (scores == null) {
+            return List.of();
+        }
+        return scores
+            .entrySet()
+            .stream()
+            .sorted(BY_SCORE.thenComparing(entry -> booksByIsbn.get(entry.getKey()), Comparator.nullsLast(byId())))
+            .skip(offset)
+            .limit(limit)
+            .map(entry -> booksByIsbn.get(entry.getKey()))
+            .filter(book -> book != null)
+            .toList();
+    }
+
+    @Override
+    public synchronized void indexed(Book book) {
+        removed(book.isbn());
+        booksByIsbn.put(book.isbn(), book);
+        weights(book).forEach((term, weight) -> index.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(book.isbn(), weight));
+    }
+
+    @Override
+    public synchronized void removed(String isbn) {
+        var book = booksByIsbn.remove(isbn);
+        if (book == null) {
+            return;
+        }
+        weights(book)
+            .keySet()
+            .forEach(term ->
+                index.computeIfPresent(
+                    term,
+                    (key, postings) -> {
+                        postings.remove(isbn);
+                        return postings.isEmpty() ? null : postings;
+                    }
+                )
+            );
+    }
+
+    private static Map<String, Integer> weights(Book book) {
+        var weights = new HashMap<String, Integer>();
+        BookSearch.terms(book.title()).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+        BookSearch.terms(book.author()).forEach(term -> weights.merge(term, AUTHOR_WEIGHT, Integer::sum));
+        if (book.publisher() != null) {
+            BookSearch.terms(book.publisher()).forEach(term -> weights.merge(term, PUBLISHER_WEIGHT, Integer::sum));
+        }
+        return weights;
+    }
+
+    private static Comparator<Book> byId() {
+        return Comparator.comparing(Book::id, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.sanjayrawat1.bookshop.catalog.event;
+
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamOperations;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Publishes the changes to the catalog to the {@code bookChanged-out-0} binding, so that the services caching books can update
+ * or evict them as soon as they change, rather than asking Catalog Service again and again.
+ * <p>
+ * There is no function to bind, since the changes come from the REST API: Spring Cloud Stream creates the binding the first time
+ * StreamBridge sends a message to it.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookChangedEventPublisher {
+
+    static final String BOOK_CHANGED_BINDING = "bookChanged-out-0";
+
+    static final String TYPE_HEADER = "bookChangeType";
+
+    private final StreamOperations streamBridge;
+
+    /**
+     * The change is published once it's committed, so that consumers never hear about a change that was rolled back. The changes made
+     * outside a transaction are already committed, and are published right away. A change that fails to be published is only logged:
+     * the book is already changed, and the consumers still expire the books they cache.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        var message = MessageBuilder.withPayload(BookChangedMessage.of(event)).setHeader(TYPE_HEADER, event.type().name()).build();
+        try {
+            if (!streamBridge.send(BOOK_CHANGED_BINDING, message)) {
+                log.warn("Failed to publish the {} event of the book with ISBN {} at version {}", event.type(), event.isbn(), event.version());
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Failed to publish the {} event of the book with ISBN {} at version {}", event.type(), event.isbn(), event.version(), exception);
+        }
+    }
+}
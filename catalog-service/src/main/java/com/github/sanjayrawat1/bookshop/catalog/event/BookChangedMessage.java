@@ -0,0 +1,19 @@
+package com.github.sanjayrawat1.bookshop.catalog.event;
+
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookChangeType;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookChangedEvent;
+
+/**
+ * DTO representing the event about a book being created, updated or deleted. The details of the book are left empty when it was deleted.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record BookChangedMessage(BookChangeType type, String isbn, int version, String title, String author, Double price, String publisher) {
+    public static BookChangedMessage of(BookChangedEvent event) {
+        var book = event.book();
+        if (book == null) {
+            return new BookChangedMessage(event.type(), event.isbn(), event.version(), null, null, null, null);
+        }
+        return new BookChangedMessage(event.type(), event.isbn(), event.version(), book.title(), book.author(), book.price(), book.publisher());
+    }
+}
@@ -1,7 +1,9 @@
 package com.github.sanjayrawat1.bookshop.catalog.web.errors;
 
 import com.github.sanjayrawat1.bookshop.catalog.domain.BookAlreadyExistsException;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookLookupTooLargeException;
 import com.github.sanjayrawat1.bookshop.catalog.domain.BookNotFoundException;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookVersionConflictException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -26,4 +28,14 @@ public class ExceptionTranslator extends ResponseEntityExceptionHandler {
     public ProblemDetail bookAlreadyExistsHandler(BookAlreadyExistsException ex) {
         return ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
     }
+
+    @ExceptionHandler(BookLookupTooLargeException.class)
+    public ProblemDetail bookLookupTooLargeHandler(BookLookupTooLargeException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ExceptionHandler(BookVersionConflictException.class)
+    public ProblemDetail bookVersionConflictHandler(BookVersionConflictException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
+    }
 }
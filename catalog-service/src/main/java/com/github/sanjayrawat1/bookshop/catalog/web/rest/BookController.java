@@ -1,11 +1,28 @@
 package com.github.sanjayrawat1.bookshop.catalog.web.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.sanjayrawat1.bookshop.catalog.domain.Book;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookImportReport;
 import com.github.sanjayrawat1.bookshop.catalog.domain.BookService;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,8 +30,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
  * A controller defining handlers for REST endpoints for {@link Book}.
@@ -24,21 +44,117 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 @RestController
 @RequestMapping("/books")
-@RequiredArgsConstructor
 public class BookController {
 
     private final BookService bookService;
 
+    private final ObjectWriter bookWriter;
+
+    private final ObjectReader bookReader;
+
+    public BookController(BookService bookService, ObjectMapper objectMapper) {
+        this.bookService = bookService;
+        // the response stream is owned by the servlet container, and it's flushed whenever its buffer is full rather than after every book.
+        this.bookWriter =
+            objectMapper.writerFor(Book.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.bookReader = objectMapper.readerFor(Book.class);
+    }
+
+    /**
+     * Returns a page of books ordered by id. The body is the list of books in the page, while the cursor to the next page,
+     * if any, is advertised in a Link header (RFC 8288) so that clients simply follow it until it's missing.
+     * <p>
+     * The page is tagged with a digest of the ids and versions of its books, so that a client can revalidate it with If-None-Match.
+     */
     @GetMapping
-    public Iterable<Book> get() {
-        log.info("Fetching the list of books in the catalog");
-        return bookService.viewBookList();
+    public ResponseEntity<List<Book>> get(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer size) {
+        log.info("Fetching the page of books in the catalog after id {}", after);
+        var page = bookService.viewBookList(after, size);
+        var headers = new HttpHeaders();
+        if (page.hasNext()) {
+            var lastBook = page.getContent().get(page.getNumberOfElements() - 1);
+            var nextPage = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .replaceQueryParam("after", lastBook.id())
+                .replaceQueryParam("size", page.getSize())
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return ResponseEntity
+            .ok()
+            .headers(headers)
+            .cacheControl(CacheControl.noCache())
+            .eTag(BookETags.of(page.getContent()))
+            .body(page.getContent());
+    }
+
+    /**
+     * Streams the whole catalog as newline delimited JSON, writing each book to the response as soon as it's read from the database.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody stream() {
+        log.info("Streaming the list of books in the catalog");
+        return outputStream ->
+            bookService.streamBookList(book -> {
+                try {
+                    bookWriter.writeValue(outputStream, book);
+                    outputStream.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+    }
+
+    /**
+     * Looks up several books at once, e.g. GET /books?isbn=1234567891,1234567892. The books that are not in the catalog are left out.
+     */
+    @GetMapping(params = "isbn")
+    public ResponseEntity<List<Book>> getByIsbns(@RequestParam Set<String> isbn) {
+        log.info("Fetching the books with ISBN {} from the catalog", isbn);
+        var books = bookService.viewBookDetails(isbn);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(BookETags.of(books)).body(books);
+    }
+
+    /**
+     * Searches the books by title, author and publisher, e.g. GET /books/search?q=spring+act, the best matches first.
+     * Like the list of books, the next page is advertised in a Link header.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Book>> search(
+        @RequestParam String q,
+        @RequestParam(required = false) Integer page,
+        @RequestParam(required = false) Integer size
+    ) {
+        log.info("Searching the books in the catalog matching \"{}\"", q);
+        var results = bookService.searchBooks(q, page, size);
+        var headers = new HttpHeaders();
+        if (results.hasNext()) {
+            var nextPage = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .replaceQueryParam("page", results.getNumber() + 1)
+                .replaceQueryParam("size", results.getSize())
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return ResponseEntity
+            .ok()
+            .headers(headers)
+            .cacheControl(CacheControl.noCache())
+            .eTag(BookETags.of(results.getContent()))
+            .body(results.getContent());
     }
 
+    /**
+     * Returns the book with the given ISBN, tagged with its id and version. A client that already has the current version and sends
+     * its tag in If-None-Match gets back a 304 Not Modified with no body: Spring MVC compares the tags before writing the response.
+     * <p>
+     * Cache-Control: no-cache allows clients to store the book, as long as they revalidate it before each use.
+     */
     @GetMapping("/{isbn}")
-    public Book getByIsbn(@PathVariable String isbn) {
+    public ResponseEntity<Book> getByIsbn(@PathVariable String isbn) {
         log.info("Fetching the book with ISBN {} from the catalog", isbn);
-        return bookService.viewBookDetails(isbn);
+        var book = bookService.viewBookDetails(isbn);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(BookETags.of(book)).body(book);
     }
 
     @PostMapping
@@ -55,6 +171,29 @@ public class BookController {
         bookService.removeBookFromCatalog(isbn);
     }
 
+    /**
+     * Imports a feed of books as newline delimited JSON, one book per line. The request body is read as it arrives and the books
+     * are inserted in chunks, so the feed can be of any size. The response reports the lines that were skipped or rejected.
+     */
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BookImportReport importNdjson(InputStream body) throws IOException {
+        log.info("Importing a feed of books as NDJSON in the catalog");
+        try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return bookService.importBooks(BookImportReader.ndjson(reader, bookReader));
+        }
+    }
+
+    /**
+     * Imports a feed of books as CSV, with a header line naming the columns. Otherwise, it works like the NDJSON import.
+     */
+    @PostMapping(path = "/import", consumes = "text/csv")
+    public BookImportReport importCsv(InputStream body) throws IOException {
+        log.info("Importing a feed of books as CSV in the catalog");
+        try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return bookService.importBooks(BookImportReader.csv(reader));
+        }
+    }
+
     @PutMapping("{isbn}")
     public Book put(@PathVariable String isbn, @Valid @RequestBody Book book) {
         log.info("Updating book with ISBN {}", isbn);
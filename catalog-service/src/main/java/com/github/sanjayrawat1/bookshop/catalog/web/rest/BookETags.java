@@ -0,0 +1,36 @@
+package com.github.sanjayrawat1.bookshop.catalog.web.rest;
+
+import com.github.sanjayrawat1.bookshop.catalog.domain.Book;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Strong entity tags for books, derived from the id and the optimistic locking version of each book, so that computing them
+ * never requires serializing the response. Any change to a book increments its version, and hence changes its tag.
+ *
+ * @author Sanjay Singh Rawat
+ */
+final class BookETags {
+
+    private BookETags() {}
+
+    /**
+     * Returns the entity tag of a single book, e.g. "42-3".
+     */
+    static String of(Book book) {
+        return "\"" + book.id() + "-" + book.version() + "\"";
+    }
+
+    /**
+     * Returns the entity tag of a list of books, a digest of the id and version of each book in the list, in the same order.
+     * Adding, removing, reordering or updating any of them changes the tag.
+     */
+    static String of(List<Book> books) {
+        var versions = new StringBuilder(books.size() * 8);
+        for (var book : books) {
+            versions.append(book.id()).append('-').append(book.version()).append(',');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.US_ASCII)) + "\"";
+    }
+}
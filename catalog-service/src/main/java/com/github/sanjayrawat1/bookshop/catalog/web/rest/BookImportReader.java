@@ -0,0 +1,166 @@
+package com.github.sanjayrawat1.bookshop.catalog.web.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.sanjayrawat1.bookshop.catalog.domain.Book;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookImportRow;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Reads the books of an imported feed one line at a time, so that the feed is never held in memory as a whole.
+ * Blank lines are ignored, and a line that cannot be read becomes an unreadable row instead of failing the whole import.
+ *
+ * @author Sanjay Singh Rawat
+ */
+abstract class BookImportReader implements Iterator<BookImportRow> {
+
+    private static final List<String> CSV_COLUMNS = List.of("isbn", "title", "author", "price", "publisher");
+
+    private final BufferedReader reader;
+
+    private long lineNumber;
+
+    private BookImportRow next;
+
+    private BookImportReader(BufferedReader reader, long lineNumber) {
+        this.reader = reader;
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Reads newline delimited JSON, one book per line. Only the fields describing the book are kept, while the id, version
+     * and audit metadata are left to the catalog.
+     */
+    static Iterator<BookImportRow> ndjson(BufferedReader reader, ObjectReader bookReader) {
+        return new BookImportReader(reader, 0) {
+            @Override
+            BookImportRow readRow(long line, String text) {
+                try {
+                    Book book = bookReader.readValue(text);
+                    return BookImportRow.of(line, Book.of(book.isbn(), book.title(), book.author(), book.price(), book.publisher()));
+                } catch (JsonProcessingException ex) {
+                    return BookImportRow.unreadable(line, "Malformed JSON: " + ex.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads comma separated values, one book per line, with double quotes around the values containing commas or quotes (RFC 4180).
+     * The first line names the columns, in any order: isbn, title, author, price and, optionally, publisher.
+     */
+    static Iterator<BookImportRow> csv(BufferedReader reader) {
+        var header = readHeader(reader);
+        var columns = CSV_COLUMNS.stream().mapToInt(header::indexOf).toArray();
+        var missingColumns = CSV_COLUMNS.stream().filter(column -> !header.contains(column) && !column.equals("publisher")).toList();
+        if (!missingColumns.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The CSV header is missing the columns " + missingColumns + ".");
+        }
+        return new BookImportReader(reader, 1) {
+            @Override
+            BookImportRow readRow(long line, String text) {
+                var values = splitCsvLine(text);
+                if (values.size() != header.size()) {
+                    return BookImportRow.unreadable(line, "Expected " + header.size() + " values but found " + values.size() + ".");
+                }
+                var price = blankToNull(values.get(columns[3]));
+                Double parsedPrice;
+                try {
+                    parsedPrice = price != null ? Double.valueOf(price) : null;
+                } catch (NumberFormatException ex) {
+                    return BookImportRow.unreadable(line, "The book price must be a number.");
+                }
+                var book = Book.of(
+                    values.get(columns[0]).trim(),
+                    values.get(columns[1]).trim(),
+                    values.get(columns[2]).trim(),
+                    parsedPrice,
+                    columns[4] >= 0 ? blankToNull(values.get(columns[4])) : null
+                );
+                return BookImportRow.of(line, book);
+            }
+        };
+    }
+
+    abstract BookImportRow readRow(long line, String text);
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            String text;
+            do {
+                text = readLine(reader);
+                lineNumber++;
+            } while (text != null && text.isBlank());
+            next = text != null ? readRow(lineNumber, text) : null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public BookImportRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var row = next;
+        next = null;
+        return row;
+    }
+
+    private static List<String> readHeader(BufferedReader reader) {
+        var header = readLine(reader);
+        if (header == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The CSV header is missing.");
+        }
+        return splitCsvLine(header).stream().map(column -> column.trim().toLowerCase(Locale.ROOT)).toList();
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static List<String> splitCsvLine(String line) {
+        var values = new ArrayList<String>();
+        var value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String blankToNull(String value) {
+        return value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,6 @@
+ALTER TABLE book ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(author, '')), 'B') ||
+    setweight(to_tsvector('simple', coalesce(publisher, '')), 'C')
+) STORED;
+CREATE INDEX book_search_vector_idx ON book USING GIN (search_vector);
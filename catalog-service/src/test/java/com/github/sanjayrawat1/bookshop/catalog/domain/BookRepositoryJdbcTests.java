@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.github.sanjayrawat1.bookshop.catalog.config.Constants;
 import com.github.sanjayrawat1.bookshop.catalog.config.DatabaseConfiguration;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -58,6 +59,88 @@ public class BookRepositoryJdbcTests {
             .hasSize(2);
     }
 
+    @Test
+    void findPageAfterReturnsBooksFollowingTheCursorOrderedById() {
+        var book1 = jdbcAggregateTemplate.insert(Book.of("1234567890", "Title", "Author", 9.25, "Publisher"));
+        var book2 = jdbcAggregateTemplate.insert(Book.of("1234567891", "Another Title", "Another Author", 9.25, "Another Publisher"));
+        var book3 = jdbcAggregateTemplate.insert(Book.of("1234567892", "Third Title", "Third Author", 9.25, "Third Publisher"));
+
+        var page = bookRepository.findPageAfter(book1.id(), 1);
+
+        assertThat(page).extracting(Book::id).containsExactly(book2.id());
+        assertThat(bookRepository.findPageAfter(book2.id(), 10)).extracting(Book::id).containsExactly(book3.id());
+    }
+
+    @Test
+    void findAllByIsbnsReturnsOnlyExistingBooks() {
+        var book1 = Book.of("1234567890", "Title", "Author", 9.25, "Publisher");
+        var book2 = Book.of("1234567891", "Another Title", "Another Author", 9.25, "Another Publisher");
+        jdbcAggregateTemplate.insert(book1);
+        jdbcAggregateTemplate.insert(book2);
+
+        var actualBooks = bookRepository.findAllByIsbns(List.of(book1.isbn(), book2.isbn(), "1234567899"));
+
+        assertThat(actualBooks).extracting(Book::isbn).containsExactlyInAnyOrder(book1.isbn(), book2.isbn());
+    }
+
+    @Test
+    @WithMockUser("sanjay")
+    void insertAllSkippingExistingInsertsOnlyNewBooksWithAuditMetadata() {
+        var existingBook = jdbcAggregateTemplate.insert(Book.of("1234567890", "Title", "Author", 9.25, "Publisher"));
+        var newBook = Book.of("1234567891", "Another Title", "Another Author", 9.25, null);
+
+        var insertCounts = bookRepository.insertAllSkippingExisting(List.of(Book.of(existingBook.isbn(), "New Title", "Author", 1.0, null), newBook));
+
+        assertThat(insertCounts).containsExactly(0, 1);
+        assertThat(bookRepository.findByIsbn(existingBook.isbn())).get().extracting(Book::title).isEqualTo("Title");
+        var insertedBook = bookRepository.findByIsbn(newBook.isbn()).orElseThrow();
+        assertThat(insertedBook.version()).isEqualTo(1);
+        assertThat(insertedBook.createdDate()).isNotNull();
+        assertThat(insertedBook.createdBy()).isEqualTo("sanjay");
+    }
+
+    @Test
+    @WithMockUser("sanjay")
+    void upsertInsertsMissingBookAndUpdatesExistingOneIncrementingItsVersion() {
+        var insertedBook = bookRepository.upsert(Book.of("1234567890", "Title", "Author", 9.25, "Publisher")).orElseThrow();
+        assertThat(insertedBook.id()).isNotNull();
+        assertThat(insertedBook.version()).isEqualTo(1);
+        assertThat(insertedBook.createdBy()).isEqualTo("sanjay");
+
+        var updatedBook = bookRepository.upsert(Book.of("1234567890", "New Title", "Author", 9.25, "Publisher")).orElseThrow();
+
+        assertThat(updatedBook.id()).isEqualTo(insertedBook.id());
+        assertThat(updatedBook.title()).isEqualTo("New Title");
+        assertThat(updatedBook.version()).isEqualTo(2);
+        assertThat(updatedBook.createdDate()).isEqualTo(insertedBook.createdDate());
+    }
+
+    @Test
+    void upsertAtOutdatedVersionLeavesBookUntouched() {
+        var existingBook = jdbcAggregateTemplate.insert(Book.of("1234567890", "Title", "Author", 9.25, "Publisher"));
+        int version = existingBook.version();
+        var outdatedBook = new Book(null, existingBook.isbn(), "New Title", "Author", 9.25, "Publisher", null, null, null, null, version + 1);
+        var currentBook = new Book(null, existingBook.isbn(), "New Title", "Author", 9.25, "Publisher", null, null, null, null, version);
+
+        assertThat(bookRepository.upsert(outdatedBook)).isEmpty();
+        assertThat(bookRepository.upsert(currentBook))
+            .get()
+            .extracting(Book::version)
+            .isEqualTo(version + 1);
+    }
+
+    @Test
+    void searchMatchesPrefixesOfAllTermsRankingTitleMatchesFirst() {
+        var byAuthor = jdbcAggregateTemplate.insert(Book.of("1234567890", "Kubernetes in Action", "Springer", 9.25, "Publisher"));
+        var byTitle = jdbcAggregateTemplate.insert(Book.of("1234567891", "Spring in Action", "Craig Walls", 9.25, "Manning"));
+        jdbcAggregateTemplate.insert(Book.of("1234567892", "Spring Microservices", "John Carnell", 9.25, "Manning"));
+
+        var books = bookRepository.search("spring:* & act:*", 10, 0);
+
+        assertThat(books).extracting(Book::id).containsExactly(byTitle.id(), byAuthor.id());
+        assertThat(bookRepository.search("spring:* & act:*", 10, 1)).extracting(Book::id).containsExactly(byAuthor.id());
+    }
+
     @Test
     void findBookByIsbnWhenExisting() {
         var bookIsbn = "1234567890";
@@ -100,9 +183,11 @@ public class BookRepositoryJdbcTests {
         var bookToCreate = Book.of(bookIsbn, "Title", "Author", 9.25, "Publisher");
         var persistedBook = jdbcAggregateTemplate.insert(bookToCreate);
 
-        bookRepository.deleteByIsbn(bookIsbn);
+        var deletedVersion = bookRepository.deleteByIsbn(bookIsbn);
 
+        assertThat(deletedVersion).contains(persistedBook.version());
         assertThat(jdbcAggregateTemplate.findById(persistedBook.id(), Book.class)).isNull();
+        assertThat(bookRepository.deleteByIsbn(bookIsbn)).isEmpty();
     }
 
     @Test
@@ -0,0 +1,96 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.sanjayrawat1.bookshop.catalog.config.BookshopProperties;
+import com.github.sanjayrawat1.bookshop.catalog.config.CacheConfiguration;
+import com.github.sanjayrawat1.bookshop.catalog.config.Constants;
+import jakarta.validation.Validator;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+/**
+ * Verifies that the books cached by {@link BookService} are kept in line with the changes to the catalog.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@SpringJUnitConfig({ CacheConfiguration.class, BookService.class, BookshopProperties.class, BookServiceCacheTests.TestCacheConfiguration.class })
+public class BookServiceCacheTests {
+
+    private static final String ISBN = "1234567890";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private BookRepository bookRepository;
+
+    @MockBean
+    private Validator validator;
+
+    @MockBean
+    private BookSearch bookSearch;
+
+    @BeforeEach
+    void clearCache() {
+        cacheManager.getCache(Constants.CACHE_BOOKS_BY_ISBN).clear();
+    }
+
+    @Test
+    void whenBookViewedTwiceThenReadFromDatabaseOnce() {
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.of(persistedBook("Title", 1)));
+
+        bookService.viewBookDetails(ISBN);
+        bookService.viewBookDetails(ISBN);
+
+        verify(bookRepository, times(1)).findByIsbn(ISBN);
+    }
+
+    @Test
+    void whenBookEditedThenCacheHoldsUpdatedBook() {
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.of(persistedBook("Title", 1)));
+        when(bookRepository.upsert(any(Book.class))).thenReturn(Optional.of(persistedBook("New Title", 2)));
+        bookService.viewBookDetails(ISBN);
+
+        bookService.editBookDetails(ISBN, Book.of(ISBN, "New Title", "Author", 9.90, "Publisher"));
+
+        assertThat(bookService.viewBookDetails(ISBN).title()).isEqualTo("New Title");
+    }
+
+    @Test
+    void whenBookRemovedThenEvictedFromCache() {
+        when(bookRepository.findByIsbn(ISBN)).thenReturn(Optional.of(persistedBook("Title", 1)));
+        when(bookRepository.deleteByIsbn(ISBN)).thenReturn(Optional.of(1));
+        bookService.viewBookDetails(ISBN);
+
+        bookService.removeBookFromCatalog(ISBN);
+
+        assertThat(cacheManager.getCache(Constants.CACHE_BOOKS_BY_ISBN).get(ISBN)).isNull();
+    }
+
+    private static Book persistedBook(String title, int version) {
+        return new Book(1L, ISBN, title, "Author", 9.90, "Publisher", null, null, null, null, version);
+    }
+
+    static class TestCacheConfiguration {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(Constants.CACHE_BOOKS_BY_ISBN);
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.github.sanjayrawat1.bookshop.catalog.domain;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.github.sanjayrawat1.bookshop.catalog.config.BookshopProperties;
+import jakarta.validation.Validator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
 
 /**
  * @author Sanjay Singh Rawat
@@ -19,6 +32,18 @@ public class BookServiceTests {
     @Mock
     private BookRepository bookRepository;
 
+    @Spy
+    private BookshopProperties bookshopProperties = new BookshopProperties();
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private BookSearch bookSearch;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BookService bookService;
 
@@ -40,4 +65,163 @@ public class BookServiceTests {
             .isInstanceOf(BookNotFoundException.class)
             .hasMessage("The book with ISBN " + bookIsbn + " was not found.");
     }
+
+    @Test
+    void whenRequestedPageSizeExceedsMaximumThenCapped() {
+        int maxSize = bookshopProperties.getPagination().getMaxSize();
+        when(bookRepository.findPageAfter(0, maxSize + 1)).thenReturn(List.of());
+
+        var page = bookService.viewBookList(null, maxSize * 10);
+
+        verify(bookRepository).findPageAfter(0, maxSize + 1);
+        assertThat(page.getSize()).isEqualTo(maxSize);
+    }
+
+    @Test
+    void whenMoreBooksThanPageSizeThenHasNextPage() {
+        var book1 = new Book(1L, "1234567890", "Title", "Author", 9.90, "Publisher", null, null, null, null, 1);
+        var book2 = new Book(2L, "1234567891", "Title", "Author", 9.90, "Publisher", null, null, null, null, 1);
+        when(bookRepository.findPageAfter(0, 2)).thenReturn(List.of(book1, book2));
+
+        var page = bookService.viewBookList(null, 1);
+
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.getContent()).containsExactly(book1);
+    }
+
+    @Test
+    void whenLastPageThenHasNoNextPage() {
+        var book = new Book(5L, "1234567890", "Title", "Author", 9.90, "Publisher", null, null, null, null, 1);
+        when(bookRepository.findPageAfter(4, 3)).thenReturn(List.of(book));
+
+        var page = bookService.viewBookList(4L, 2);
+
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.getContent()).containsExactly(book);
+    }
+
+    @Test
+    void whenTooManyBooksLookedUpThenThrows() {
+        bookshopProperties.getPagination().setMaxLookupSize(1);
+        assertThatThrownBy(() -> bookService.viewBookDetails(Set.of("1234567890", "1234567891")))
+            .isInstanceOf(BookLookupTooLargeException.class)
+            .hasMessage("No more than 1 books can be looked up at once.");
+    }
+
+    @Test
+    void whenImportingBooksThenInsertedInChunksAndSkippedOrRejectedLinesReported() {
+        bookshopProperties.getBulkImport().setChunkSize(2);
+        var book1 = Book.of("1234567890", "Title", "Author", 9.90, "Publisher");
+        var book2 = Book.of("1234567891", "Another Title", "Another Author", 9.90, "Publisher");
+        var book3 = Book.of("1234567892", "Third Title", "Third Author", 9.90, "Publisher");
+        when(validator.validate(any(Book.class))).thenReturn(Set.of());
+        when(bookRepository.insertAllSkippingExisting(List.of(book1, book2))).thenReturn(new int[] { 1, 0 });
+        when(bookRepository.insertAllSkippingExisting(List.of(book3))).thenReturn(new int[] { 1 });
+        var storedBook1 = new Book(1L, book1.isbn(), book1.title(), book1.author(), book1.price(), book1.publisher(), null, null, null, null, 1);
+        var storedBook3 = new Book(3L, book3.isbn(), book3.title(), book3.author(), book3.price(), book3.publisher(), null, null, null, null, 1);
+        when(bookRepository.findAllByIsbns(Set.of(book1.isbn()))).thenReturn(List.of(storedBook1));
+        when(bookRepository.findAllByIsbns(Set.of(book3.isbn()))).thenReturn(List.of(storedBook3));
+        var rows = List.of(
+            BookImportRow.of(1, book1),
+            BookImportRow.unreadable(2, "Malformed JSON"),
+            BookImportRow.of(3, book2),
+            BookImportRow.of(4, book3)
+        );
+
+        var report = bookService.importBooks(rows.iterator());
+
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.skipped()).isEqualTo(1);
+        assertThat(report.rejected()).isEqualTo(1);
+        assertThat(report.errors())
+            .containsExactly(
+                new BookImportReport.RowError(2, null, "Malformed JSON"),
+                new BookImportReport.RowError(3, book2.isbn(), "A book with ISBN " + book2.isbn() + " already exists.")
+            );
+        verify(bookSearch).indexed(storedBook1);
+        verify(bookSearch).indexed(storedBook3);
+        verifyNoMoreInteractions(bookSearch);
+        verify(eventPublisher).publishEvent(new BookChangedEvent(BookChangeType.CREATED, book1.isbn(), 1, storedBook1));
+        verify(eventPublisher).publishEvent(new BookChangedEvent(BookChangeType.CREATED, book3.isbn(), 1, storedBook3));
+    }
+
+    @Test
+    void whenBookEditedThenUpsertedWithSingleStatementUnderPathIsbn() {
+        var bookIsbn = "1234567890";
+        var upsertedBook = new Book(1L, bookIsbn, "New Title", "Author", 9.90, "Publisher", null, null, null, null, 2);
+        var expectedUpsert = new Book(null, bookIsbn, "New Title", "Author", 9.90, "Publisher", null, null, null, null, 0);
+        when(bookRepository.upsert(expectedUpsert)).thenReturn(Optional.of(upsertedBook));
+
+        var editedBook = bookService.editBookDetails(bookIsbn, Book.of("1234567899", "New Title", "Author", 9.90, "Publisher"));
+
+        assertThat(editedBook).isEqualTo(upsertedBook);
+        verify(bookRepository).upsert(expectedUpsert);
+        verifyNoMoreInteractions(bookRepository);
+        verify(eventPublisher).publishEvent(new BookChangedEvent(BookChangeType.UPDATED, bookIsbn, 2, upsertedBook));
+    }
+
+    @Test
+    void whenBookRemovedThenDeletedEventPublishedWithLastVersion() {
+        var bookIsbn = "1234567890";
+        when(bookRepository.deleteByIsbn(bookIsbn)).thenReturn(Optional.of(4));
+
+        bookService.removeBookFromCatalog(bookIsbn);
+
+        verify(eventPublisher).publishEvent(new BookChangedEvent(BookChangeType.DELETED, bookIsbn, 4, null));
+    }
+
+    @Test
+    void whenRemovedBookDoesNotExistThenNoEventPublished() {
+        var bookIsbn = "1234567890";
+        when(bookRepository.deleteByIsbn(bookIsbn)).thenReturn(Optional.empty());
+
+        bookService.removeBookFromCatalog(bookIsbn);
+
+        verifyNoInteractions(eventPublisher, bookSearch);
+    }
+
+    @Test
+    void whenBookEditedAtOutdatedVersionThenThrows() {
+        var bookIsbn = "1234567890";
+        var book = new Book(null, bookIsbn, "New Title", "Author", 9.90, "Publisher", null, null, null, null, 3);
+        when(bookRepository.upsert(book)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> bookService.editBookDetails(bookIsbn, book))
+            .isInstanceOf(BookVersionConflictException.class)
+            .hasMessage("The book with ISBN " + bookIsbn + " is no longer at version 3.");
+        verify(bookRepository, times(1)).upsert(book);
+    }
+
+    @Test
+    void whenUpsertFailsBecauseOfConcurrentTransactionThenRetriedUpToMaxAttempts() {
+        var bookIsbn = "1234567890";
+        var book = Book.of(bookIsbn, "Title", "Author", 9.90, "Publisher");
+        var upsertedBook = new Book(1L, bookIsbn, "Title", "Author", 9.90, "Publisher", null, null, null, null, 1);
+        when(bookRepository.upsert(book)).thenThrow(new CannotAcquireLockException("deadlock")).thenReturn(Optional.of(upsertedBook));
+
+        assertThat(bookService.editBookDetails(bookIsbn, book)).isEqualTo(upsertedBook);
+
+        when(bookRepository.upsert(book)).thenThrow(new CannotAcquireLockException("deadlock"));
+        assertThatThrownBy(() -> bookService.editBookDetails(bookIsbn, book)).isInstanceOf(CannotAcquireLockException.class);
+        verify(bookRepository, times(2 + bookshopProperties.getUpsert().getMaxAttempts())).upsert(book);
+    }
+
+    @Test
+    void whenSearchingBooksThenTermsExtractedAndPageFoundByOffset() {
+        var book = Book.of("1234567890", "Cloud Native Spring in Action", "Thomas Vitale", 9.90, "Manning");
+        when(bookSearch.search(List.of("spring", "act"), 3, 4)).thenReturn(List.of(book, book, book));
+
+        var page = bookService.searchBooks(" Spring, act", 2, 2);
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    void whenSearchingWithoutTermsThenEmptyPage() {
+        var page = bookService.searchBooks(" -- ", null, null);
+
+        assertThat(page.getContent()).isEmpty();
+        verifyNoInteractions(bookSearch);
+    }
 }
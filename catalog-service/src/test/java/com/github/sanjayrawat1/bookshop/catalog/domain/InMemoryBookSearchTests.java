@@ -0,0 +1,54 @@
+package com.github.sanjayrawat1.bookshop.catalog.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class InMemoryBookSearchTests {
+
+    private static final Book KUBERNETES = new Book(1L, "1234567890", "Kubernetes in Action", "Springer", 9.25, null, null, null, null, null, 1);
+
+    private static final Book SPRING = new Book(2L, "1234567891", "Spring in Action", "Craig Walls", 9.25, "Manning", null, null, null, null, 1);
+
+    private static final Book MICROSERVICES = new Book(3L, "1234567892", "Spring Microservices", "John Carnell", 9.25, "Manning", null, null, null, null, 1);
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private InMemoryBookSearch bookSearch;
+
+    @Test
+    void whenSearchingThenPrefixesOfAllTermsMatchedAndTitleMatchesRankedFirst() {
+        when(bookRepository.findAll()).thenReturn(List.of(KUBERNETES, SPRING, MICROSERVICES));
+        bookSearch.buildIndex();
+
+        assertThat(bookSearch.search(List.of("spring", "act"), 10, 0)).containsExactly(SPRING, KUBERNETES);
+        assertThat(bookSearch.search(List.of("spring", "act"), 10, 1)).containsExactly(KUBERNETES);
+        assertThat(bookSearch.search(List.of("manning"), 10, 0)).containsExactly(SPRING, MICROSERVICES);
+        assertThat(bookSearch.search(List.of("python"), 10, 0)).isEmpty();
+    }
+
+    @Test
+    void whenBookUpdatedOrRemovedThenIndexKeptUpToDate() {
+        bookSearch.indexed(SPRING);
+        bookSearch.indexed(new Book(2L, SPRING.isbn(), "Spring Boot Up and Running", "Mark Heckler", 9.25, null, null, null, null, null, 2));
+
+        assertThat(bookSearch.search(List.of("act"), 10, 0)).isEmpty();
+        assertThat(bookSearch.search(List.of("boot"), 10, 0)).extracting(Book::version).containsExactly(2);
+
+        bookSearch.removed(SPRING.isbn());
+
+        assertThat(bookSearch.search(List.of("spring"), 10, 0)).isEmpty();
+    }
+}
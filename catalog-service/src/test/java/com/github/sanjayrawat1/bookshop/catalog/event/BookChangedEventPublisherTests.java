@@ -0,0 +1,65 @@
+package com.github.sanjayrawat1.bookshop.catalog.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.sanjayrawat1.bookshop.catalog.domain.Book;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookChangeType;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.cloud.stream.function.StreamOperations;
+import org.springframework.messaging.Message;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class BookChangedEventPublisherTests {
+
+    @Mock
+    private StreamOperations streamBridge;
+
+    @InjectMocks
+    private BookChangedEventPublisher bookChangedEventPublisher;
+
+    @Test
+    void whenBookUpdatedThenMessageWithVersionSent() {
+        var book = new Book(1L, "1234567890", "New Title", "Author", 9.90, "Publisher", null, null, null, null, 2);
+        when(streamBridge.send(eq(BookChangedEventPublisher.BOOK_CHANGED_BINDING), any(Message.class))).thenReturn(true);
+
+        bookChangedEventPublisher.onBookChanged(BookChangedEvent.saved(book));
+
+        var message = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge).send(eq(BookChangedEventPublisher.BOOK_CHANGED_BINDING), message.capture());
+        assertThat(message.getValue().getPayload())
+            .isEqualTo(new BookChangedMessage(BookChangeType.UPDATED, "1234567890", 2, "New Title", "Author", 9.90, "Publisher"));
+        assertThat(message.getValue().getHeaders()).containsEntry(BookChangedEventPublisher.TYPE_HEADER, "UPDATED");
+    }
+
+    @Test
+    void whenBookDeletedThenMessageWithoutDetailsSent() {
+        when(streamBridge.send(eq(BookChangedEventPublisher.BOOK_CHANGED_BINDING), any(Message.class))).thenReturn(true);
+
+        bookChangedEventPublisher.onBookChanged(BookChangedEvent.deleted("1234567890", 3));
+
+        var message = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge).send(eq(BookChangedEventPublisher.BOOK_CHANGED_BINDING), message.capture());
+        assertThat(message.getValue().getPayload()).isEqualTo(new BookChangedMessage(BookChangeType.DELETED, "1234567890", 3, null, null, null, null));
+    }
+
+    @Test
+    void whenBrokerUnavailableThenChangeNotFailed() {
+        when(streamBridge.send(eq(BookChangedEventPublisher.BOOK_CHANGED_BINDING), any(Message.class))).thenThrow(new AmqpConnectException(null));
+
+        bookChangedEventPublisher.onBookChanged(BookChangedEvent.deleted("1234567890", 3));
+    }
+}
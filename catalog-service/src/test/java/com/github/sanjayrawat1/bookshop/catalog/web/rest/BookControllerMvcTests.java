@@ -1,23 +1,39 @@
 package com.github.sanjayrawat1.bookshop.catalog.web.rest;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.sanjayrawat1.bookshop.catalog.config.SecurityConfiguration;
 import com.github.sanjayrawat1.bookshop.catalog.domain.Book;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookImportReport;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookImportRow;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookLookupTooLargeException;
 import com.github.sanjayrawat1.bookshop.catalog.domain.BookNotFoundException;
 import com.github.sanjayrawat1.bookshop.catalog.domain.BookService;
+import com.github.sanjayrawat1.bookshop.catalog.domain.BookVersionConflictException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
@@ -67,6 +83,51 @@ public class BookControllerMvcTests {
     @MockBean
     private JwtDecoder jwtDecoder;
 
+    @Test
+    void whenGetBooksWithNextPageThenShouldReturnLinkToNextPage() throws Exception {
+        var book = new Book(7L, "1234567890", "Title", "Author", 9.90, "Publisher", null, null, null, null, 1);
+        given(bookService.viewBookList(null, 1)).willReturn(new SliceImpl<>(List.of(book), PageRequest.ofSize(1), true));
+        mockMvc
+            .perform(get("/books").param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].isbn").value(book.isbn()))
+            .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/books?after=7&size=1>; rel=\"next\""));
+    }
+
+    @Test
+    void whenGetBooksOnLastPageThenShouldNotReturnLink() throws Exception {
+        given(bookService.viewBookList(null, null)).willReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(20), false));
+        mockMvc.perform(get("/books")).andExpect(status().isOk()).andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    void whenSearchBooksWithNextPageThenShouldReturnLinkToNextPage() throws Exception {
+        var book = new Book(7L, "1234567890", "Cloud Native Spring in Action", "Thomas Vitale", 9.90, "Manning", null, null, null, null, 1);
+        given(bookService.searchBooks("spring", null, 1)).willReturn(new SliceImpl<>(List.of(book), PageRequest.of(0, 1), true));
+        mockMvc
+            .perform(get("/books/search?q=spring&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].isbn").value(book.isbn()))
+            .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/books/search?q=spring&page=1&size=1>; rel=\"next\""));
+    }
+
+    @Test
+    void whenGetBooksByIsbnsThenShouldReturnFoundBooks() throws Exception {
+        var book = Book.of("1234567890", "Title", "Author", 9.90, "Publisher");
+        given(bookService.viewBookDetails(Set.of("1234567890", "1234567891"))).willReturn(List.of(book));
+        mockMvc
+            .perform(get("/books").param("isbn", "1234567890,1234567891"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].isbn").value(book.isbn()));
+    }
+
+    @Test
+    void whenGetTooManyBooksByIsbnsThenShouldReturn400() throws Exception {
+        given(bookService.viewBookDetails(Set.of("1234567890"))).willThrow(new BookLookupTooLargeException(0));
+        mockMvc.perform(get("/books").param("isbn", "1234567890")).andExpect(status().isBadRequest());
+    }
+
     @Test
     void whenGetBookExistingAndAuthenticatedThenShouldReturn200() throws Exception {
         var isbn = "1234567890";
@@ -83,6 +144,48 @@ public class BookControllerMvcTests {
         mockMvc.perform(get("/books/{isbn}", isbn)).andExpect(status().isOk());
     }
 
+    @Test
+    void whenGetBookThenShouldReturnETagFromIdAndVersion() throws Exception {
+        var isbn = "1234567890";
+        var book = new Book(42L, isbn, "Title", "Author", 9.90, "Publisher", null, null, null, null, 3);
+        given(bookService.viewBookDetails(isbn)).willReturn(book);
+        mockMvc
+            .perform(get("/books/{isbn}", isbn))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"42-3\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void whenGetBookWithCurrentETagThenShouldReturn304() throws Exception {
+        var isbn = "1234567890";
+        var book = new Book(42L, isbn, "Title", "Author", 9.90, "Publisher", null, null, null, null, 3);
+        given(bookService.viewBookDetails(isbn)).willReturn(book);
+        mockMvc
+            .perform(get("/books/{isbn}", isbn).header(HttpHeaders.IF_NONE_MATCH, "\"42-3\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    void whenGetBookWithOutdatedETagThenShouldReturn200() throws Exception {
+        var isbn = "1234567890";
+        var book = new Book(42L, isbn, "Title", "Author", 9.90, "Publisher", null, null, null, null, 4);
+        given(bookService.viewBookDetails(isbn)).willReturn(book);
+        mockMvc
+            .perform(get("/books/{isbn}", isbn).header(HttpHeaders.IF_NONE_MATCH, "\"42-3\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"42-4\""));
+    }
+
+    @Test
+    void whenGetBooksWithCurrentETagThenShouldReturn304() throws Exception {
+        var book = new Book(7L, "1234567890", "Title", "Author", 9.90, "Publisher", null, null, null, null, 1);
+        given(bookService.viewBookList(null, null)).willReturn(new SliceImpl<>(List.of(book), PageRequest.ofSize(20), false));
+        var eTag = mockMvc.perform(get("/books")).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+    }
+
     @Test
     void whenGetBookNotExistingAndAuthenticatedThenShouldReturn404() throws Exception {
         var isbn = "1234567890";
@@ -154,6 +257,78 @@ public class BookControllerMvcTests {
             .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void whenImportCsvWithEmployeeRoleThenShouldReportUnreadableLines() throws Exception {
+        var rows = new ArrayList<BookImportRow>();
+        given(bookService.importBooks(any()))
+            .willAnswer(invocation -> {
+                Iterator<BookImportRow> iterator = invocation.getArgument(0);
+                iterator.forEachRemaining(rows::add);
+                return new BookImportReport(1, 0, 1, List.of(new BookImportReport.RowError(3, null, "The book price must be a number.")));
+            });
+        var csv = """
+            isbn,title,author,price,publisher
+            1234567890,"Title, with comma",Author,9.90,Publisher
+
+            1234567891,Title,Author,free,Publisher
+            """;
+        mockMvc
+            .perform(
+                post("/books/import")
+                    .contentType("text/csv")
+                    .content(csv)
+                    .with(jwt().authorities(new SimpleGrantedAuthority(ROLE_EMPLOYEE)))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.errors[0].line").value(3));
+
+        assertThat(rows)
+            .containsExactly(
+                BookImportRow.of(2, Book.of("1234567890", "Title, with comma", "Author", 9.90, "Publisher")),
+                BookImportRow.unreadable(4, "The book price must be a number.")
+            );
+    }
+
+    @Test
+    void whenImportNdjsonWithEmployeeRoleThenShouldReadOneBookPerLine() throws Exception {
+        var rows = new ArrayList<BookImportRow>();
+        given(bookService.importBooks(any()))
+            .willAnswer(invocation -> {
+                Iterator<BookImportRow> iterator = invocation.getArgument(0);
+                iterator.forEachRemaining(rows::add);
+                return new BookImportReport(1, 0, 1, List.of());
+            });
+        var ndjson = """
+            {"isbn":"1234567890","title":"Title","author":"Author","price":9.90,"publisher":"Publisher","version":7}
+            {"isbn":
+            """;
+        mockMvc
+            .perform(
+                post("/books/import")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .content(ndjson)
+                    .with(jwt().authorities(new SimpleGrantedAuthority(ROLE_EMPLOYEE)))
+            )
+            .andExpect(status().isOk());
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).isEqualTo(BookImportRow.of(1, Book.of("1234567890", "Title", "Author", 9.90, "Publisher")));
+        assertThat(rows.get(1).error()).startsWith("Malformed JSON");
+    }
+
+    @Test
+    void whenImportBooksWithCustomerRoleThenShouldReturn403() throws Exception {
+        mockMvc
+            .perform(
+                post("/books/import")
+                    .contentType("text/csv")
+                    .content("isbn,title,author,price")
+                    .with(jwt().authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            )
+            .andExpect(status().isForbidden());
+    }
+
     @Test
     void whenPutBookWithEmployeeRoleThenShouldReturn200() throws Exception {
         var isbn = "1234567890";
@@ -169,6 +344,21 @@ public class BookControllerMvcTests {
             .andExpect(status().isOk());
     }
 
+    @Test
+    void whenPutBookAtOutdatedVersionThenShouldReturn409() throws Exception {
+        var isbn = "1234567890";
+        var bookToUpdate = new Book(1L, isbn, "Title", "Author", 9.90, "Publisher", null, null, null, null, 3);
+        given(bookService.editBookDetails(isbn, bookToUpdate)).willThrow(new BookVersionConflictException(isbn, 3));
+        mockMvc
+            .perform(
+                put("/books/{isbn}", isbn)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(bookToUpdate))
+                    .with(jwt().authorities(new SimpleGrantedAuthority(ROLE_EMPLOYEE)))
+            )
+            .andExpect(status().isConflict());
+    }
+
     @Test
     void whenPutBookWithCustomerRoleThenShouldReturn403() throws Exception {
         var isbn = "1234567890";
@@ -3,6 +3,7 @@ plugins {
     id("org.springframework.boot") version "3.0.5"
     id("io.spring.dependency-management") version "1.1.0"
     id("com.diffplug.spotless") version "6.16.0"
+    id("me.champeau.jmh") version "0.7.0"
 }
 
 group = "com.github.sanjayrawat1.bookshop"
@@ -29,6 +30,7 @@ dependencies {
     // implementation("org.springframework.boot:spring-boot-starter")
     // implementation("org.springframework.cloud:spring-cloud-function-context")
     implementation("org.springframework.cloud:spring-cloud-stream-binder-rabbit")
+    implementation("com.github.sanjayrawat1.bookshop:bookshop-redelivery:0.0.1-SNAPSHOT")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.springframework.cloud:spring-cloud-starter-config")
     implementation("org.springframework.retry:spring-retry")
@@ -45,6 +47,7 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("io.projectreactor:reactor-test")
     testImplementation("org.springframework.cloud:spring-cloud-stream-test-binder")
+    jmh("org.springframework.cloud:spring-cloud-stream-test-binder")
 }
 
 dependencyManagement {
@@ -57,6 +60,10 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+tasks.check {
+    dependsOn(gradle.includedBuild("bookshop-redelivery").task(":check"))
+}
+
 tasks.build {
     dependsOn("spotlessApply")
 }
@@ -77,6 +84,17 @@ springBoot {
     buildInfo()
 }
 
+jmh {
+    jmhVersion.set("1.36")
+    // a single fork with a short warmup keeps a full run within minutes, while still letting the JIT compile the hot paths.
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // machine-readable results, so that the runs of two commits can be diffed (e.g. with JMH Visualizer).
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
 spotless {
     java {
         toggleOffOn()
@@ -1 +1,4 @@
 rootProject.name = "dispatcher-service"
+
+// builds the redelivery library shared by the services consuming events along with the service.
+includeBuild("../bookshop-redelivery")
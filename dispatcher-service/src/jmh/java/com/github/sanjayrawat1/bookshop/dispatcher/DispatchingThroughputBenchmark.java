@@ -0,0 +1,90 @@
+package com.github.sanjayrawat1.bookshop.dispatcher;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * Measures how many accepted orders per second go through the pack|label function, depending on the number of partitions the
+ * orders are packed in parallel with. The orders are sent to, and received from, the bindings of the Spring Cloud Stream test binder,
+ * so that the broker is left out of the measure.
+ * <p>
+ * Run with {@code ./gradlew jmh}, the results are written to build/results/jmh/results.json.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(DispatchingThroughputBenchmark.ORDERS)
+public class DispatchingThroughputBenchmark {
+
+    static final int ORDERS = 1000;
+
+    private static final String ORDER_DISPATCHED = "order-dispatched";
+
+    @Param({ "1", "4", "16" })
+    public int partitions;
+
+    /**
+     * The simulated time spent packing each order, without which the partitions would have nothing to do in parallel.
+     */
+    @Param({ "1ms" })
+    public String packingTime;
+
+    private ConfigurableApplicationContext context;
+
+    private InputDestination input;
+
+    private OutputDestination output;
+
+    private long nextOrderId;
+
+    @Setup
+    public void setup() {
+        context =
+            new SpringApplicationBuilder(DispatcherServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                // passed as command line arguments, which take precedence over application.yml.
+                .run(
+                    "--bookshop.dispatch.partitions=" + partitions,
+                    "--bookshop.dispatch.packing-time=" + packingTime,
+                    // logging every order would be measured, rather than the dispatching itself.
+                    "--logging.level.com.github.sanjayrawat1.bookshop.dispatcher=warn",
+                    "--spring.main.banner-mode=off"
+                );
+        input = context.getBean(InputDestination.class);
+        output = context.getBean(OutputDestination.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void dispatchOrders() {
+        for (int i = 0; i < ORDERS; i++) {
+            input.send(MessageBuilder.withPayload(new OrderAcceptedMessage(nextOrderId++)).build());
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            if (output.receive(5000, ORDER_DISPATCHED) == null) {
+                throw new IllegalStateException("Only " + i + " of the " + ORDERS + " orders were dispatched.");
+            }
+        }
+    }
+}
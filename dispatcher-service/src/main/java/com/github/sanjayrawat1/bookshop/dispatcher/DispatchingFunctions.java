@@ -1,10 +1,16 @@
 package com.github.sanjayrawat1.bookshop.dispatcher;
 
+import com.github.sanjayrawat1.bookshop.dispatcher.config.BookshopProperties;
+import com.github.sanjayrawat1.bookshop.redelivery.DeadLetterRedelivery;
+import java.util.Objects;
 import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Functions to perform actions as part of dispatching an order.
@@ -21,27 +27,102 @@ import reactor.core.publisher.Flux;
 @Configuration
 public class DispatchingFunctions {
 
+    /**
+     * The threads packing the partitions of the accepted orders, one per partition.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler packingScheduler(BookshopProperties bookshopProperties) {
+        return Schedulers.newParallel("pack", bookshopProperties.getDispatch().getPartitions());
+    }
+
     /**
      * Functions defined as beans can be discovered and managed by Spring Cloud Function.
+     * <p>
+     * The accepted orders are spread over partitions by order id, and the partitions are packed in parallel, each on its own thread of
+     * the packing scheduler. All the events about an order fall in the same partition, where they are packed one at a time in the
+     * order they were received, so that the ordering is preserved for each order while the throughput grows with the partitions.
+     * <p>
+     * The copies of an order accepted event received within the deduplication window are dropped before being packed, so that
+     * neither the packing nor the update of the order in Order Service is done twice.
+     * <p>
+     * The events are received as messages, so that an event which can't be converted to an OrderAcceptedMessage is sent to the dead
+     * letter queue, instead of failing the whole stream and stopping the dispatching.
      */
     @Bean
-    public Function<OrderAcceptedMessage, Long> pack() {
-        return orderAcceptedMessage -> {
-            log.info("The order with id : {} is packed.", orderAcceptedMessage.orderId());
-            return orderAcceptedMessage.orderId();
-        };
+    public Function<Flux<Message<OrderAcceptedMessage>>, Flux<Long>> pack(
+        BookshopProperties bookshopProperties,
+        Scheduler packingScheduler,
+        OrderDeduplicator orderDeduplicator,
+        DeadLetterRedelivery deadLetterRedelivery
+    ) {
+        var dispatch = bookshopProperties.getDispatch();
+        int partitions = dispatch.getPartitions();
+        return orderAcceptedMessages ->
+            orderAcceptedMessages
+                .filter(message -> isConverted(message, deadLetterRedelivery))
+                .map(Message::getPayload)
+                .filter(orderAcceptedMessage -> orderDeduplicator.firstSeen(orderAcceptedMessage.orderId()))
+                .groupBy(orderAcceptedMessage -> partitionOf(orderAcceptedMessage.orderId(), partitions))
+                // the concurrency lets every partition be subscribed at once, otherwise the partitions beyond it would never be drained.
+                .flatMap(partition -> partition.publishOn(packingScheduler).map(orderAcceptedMessage -> packOrder(orderAcceptedMessage, dispatch)), partitions);
     }
 
     /**
      * Spring Cloud Function supports both imperative and reactive code, so you're free to implement functions using reactive APIs like Mono and Flux.
      * You can also mix and match.
+     * <p>
+     * With batching enabled, the labeled orders are grouped by batch size, or by time window when they are not coming fast enough,
+     * and each batch is published as a single message, so that the broker handles one message for many orders at peak.
      */
     @Bean
-    public Function<Flux<Long>, Flux<OrderDispatchedMessage>> label() {
+    public Function<Flux<Long>, Flux<OrderDispatchedEvent>> label(BookshopProperties bookshopProperties) {
+        var dispatch = bookshopProperties.getDispatch();
+        if (dispatch.isBatching()) {
+            return orderFlux ->
+                orderFlux
+                    .bufferTimeout(dispatch.getBatchSize(), dispatch.getBatchWindow())
+                    .map(orderIds -> {
+                        log.info("The orders with ids {} are labeled.", orderIds);
+                        return new OrderDispatchedBatch(orderIds);
+                    });
+        }
         return orderFlux ->
             orderFlux.map(orderId -> {
                 log.info("The order with id {} is labeled.", orderId);
                 return new OrderDispatchedMessage(orderId);
             });
     }
+
+    static int partitionOf(Long orderId, int partitions) {
+        return Math.floorMod(Objects.hashCode(orderId), partitions);
+    }
+
+    /**
+     * Spring Cloud Function hands over the message received as is when its payload can't be converted to the type of the function.
+     */
+    private static boolean isConverted(Message<OrderAcceptedMessage> message, DeadLetterRedelivery deadLetterRedelivery) {
+        Object payload = ((Message<?>) message).getPayload();
+        if (payload instanceof OrderAcceptedMessage) {
+            return true;
+        }
+        log.error("The order accepted event {} can't be read, it's sent to the dead letter queue", message.getHeaders().getId());
+        try {
+            deadLetterRedelivery.deadLetter(message);
+        } catch (Exception exception) {
+            log.error("Failed to send the order accepted event {} to the dead letter queue", message.getHeaders().getId(), exception);
+        }
+        return false;
+    }
+
+    private static Long packOrder(OrderAcceptedMessage orderAcceptedMessage, BookshopProperties.Dispatch dispatch) {
+        if (!dispatch.getPackingTime().isZero()) {
+            try {
+                Thread.sleep(dispatch.getPackingTime());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("The order with id : {} is packed.", orderAcceptedMessage.orderId());
+        return orderAcceptedMessage.orderId();
+    }
 }
@@ -0,0 +1,193 @@
+package com.github.sanjayrawat1.bookshop.dispatcher;
+
+import com.github.sanjayrawat1.bookshop.dispatcher.config.BookshopProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the ids of the orders accepted recently, so that the copies of an order accepted event redelivered by RabbitMQ, or replayed
+ * from the outbox of Order Service, are dropped before being packed, labeled and dispatched once more.
+ * <p>
+ * The ids are kept in two generations of a primitive long set: new ids go to the current generation, which replaces the previous one
+ * once the deduplication window has elapsed, or once it holds the maximum number of ids. An id is thus remembered for at least the
+ * window, or for the last maximum number to twice the maximum number of ids accepted, whichever is shorter, and never more than twice
+ * the maximum number of ids are held in memory. The rotations are counted by cause, since those forced by the size tell the window is
+ * shortened. The sets are exact rather than Bloom filters, since a false positive would drop an order that was never dispatched.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Component
+public class OrderDeduplicator {
+
+    private final Duration window;
+
+    private final int maxSize;
+
+    private final Clock clock;
+
+    private final Counter uniqueCounter;
+
+    private final Counter duplicateCounter;
+
+    private final Counter windowRotationCounter;
+
+    private final Counter sizeRotationCounter;
+
+    private LongSet current;
+
+    private LongSet previous;
+
+    private Instant rotatedAt;
+
+    @Autowired
+    public OrderDeduplicator(BookshopProperties bookshopProperties, MeterRegistry meterRegistry) {
+        this(bookshopProperties, meterRegistry, Clock.systemUTC());
+    }
+
+    OrderDeduplicator(BookshopProperties bookshopProperties, MeterRegistry meterRegistry, Clock clock) {
+        var dispatch = bookshopProperties.getDispatch();
+        this.window = dispatch.getDeduplicationWindow();
+        this.maxSize = dispatch.getDeduplicationMaxSize();
+        this.clock = clock;
+        this.uniqueCounter = deduplicationCounter(meterRegistry, "unique");
+        this.duplicateCounter = deduplicationCounter(meterRegistry, "duplicate");
+        this.windowRotationCounter = rotationCounter(meterRegistry, "window");
+        this.sizeRotationCounter = rotationCounter(meterRegistry, "size");
+        this.current = new LongSet(maxSize);
+        this.previous = new LongSet(maxSize);
+        this.rotatedAt = clock.instant();
+    }
+
+    /**
+     * Tells whether the order is seen for the first time within the deduplication window, and remembers it.
+     * The orders without an id are always let through.
+     */
+    public synchronized boolean firstSeen(Long orderId) {
+        if (orderId == null) {
+            return true;
+        }
+        rotateIfNeeded();
+        if (current.contains(orderId) || previous.contains(orderId)) {
+            duplicateCounter.increment();
+            return false;
+        }
+        current.add(orderId);
+        uniqueCounter.increment();
+        return true;
+    }
+
+    /**
+     * Forgets all the orders remembered so far.
+     */
+    synchronized void clear() {
+        current.clear();
+        previous.clear();
+        rotatedAt = clock.instant();
+    }
+
+    private void rotateIfNeeded() {
+        var now = clock.instant();
+        var elapsed = Duration.between(rotatedAt, now);
+        boolean windowElapsed = elapsed.compareTo(window) >= 0;
+        if (!windowElapsed && current.size() < maxSize) {
+            return;
+        }
+        (windowElapsed ? windowRotationCounter : sizeRotationCounter).increment();
+        // when no order came for two windows, the current generation is already too old to be kept as the previous one.
+        if (elapsed.compareTo(window.multipliedBy(2)) >= 0) {
+            current.clear();
+        }
+        var cleared = previous;
+        cleared.clear();
+        previous = current;
+        current = cleared;
+        rotatedAt = now;
+    }
+
+    private static Counter deduplicationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter
+            .builder("bookshop.dispatch.deduplication")
+            .description("Order accepted events checked against the orders accepted recently")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static Counter rotationCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter
+            .builder("bookshop.dispatch.deduplication.rotations")
+            .description("Generations of order ids forgotten, once the deduplication window elapsed or the maximum number of ids reached")
+            .tag("cause", cause)
+            .register(meterRegistry);
+    }
+
+    /**
+     * A set of long values with open addressing and linear probing, sized once for a maximum number of values so that it never
+     * resizes, and storing the values unboxed. Zero marks the empty slots, so it's tracked on its own.
+     */
+    private static final class LongSet {
+
+        private final long[] slots;
+
+        private final int mask;
+
+        private boolean containsZero;
+
+        private int size;
+
+        LongSet(int maxSize) {
+            // keeps the load factor under one half, so that the probe sequences stay short.
+            int capacity = Integer.highestOneBit(Math.max(maxSize, 1) * 2 - 1) << 1;
+            this.slots = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        boolean contains(long value) {
+            if (value == 0) {
+                return containsZero;
+            }
+            for (int index = indexOf(value);; index = (index + 1) & mask) {
+                if (slots[index] == value) {
+                    return true;
+                }
+                if (slots[index] == 0) {
+                    return false;
+                }
+            }
+        }
+
+        void add(long value) {
+            if (value == 0) {
+                containsZero = true;
+            } else {
+                int index = indexOf(value);
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            Arrays.fill(slots, 0);
+            containsZero = false;
+            size = 0;
+        }
+
+        private int indexOf(long value) {
+            // spreads the sequential ids generated by the database over the whole table.
+            long hash = value * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.sanjayrawat1.bookshop.dispatcher;
+
+import java.util.List;
+
+/**
+ * DTO representing the event about a batch of orders being dispatched, published as a single message.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record OrderDispatchedBatch(List<Long> orderIds) implements OrderDispatchedEvent {}
@@ -0,0 +1,8 @@
+package com.github.sanjayrawat1.bookshop.dispatcher;
+
+/**
+ * The event about orders being dispatched, published either for a single order or for a batch of orders.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public sealed interface OrderDispatchedEvent permits OrderDispatchedMessage, OrderDispatchedBatch {}
@@ -5,4 +5,4 @@ package com.github.sanjayrawat1.bookshop.dispatcher;
  *
  * @author Sanjay Singh Rawat
  */
-public record OrderDispatchedMessage(Long orderId) {}
+public record OrderDispatchedMessage(Long orderId) implements OrderDispatchedEvent {}
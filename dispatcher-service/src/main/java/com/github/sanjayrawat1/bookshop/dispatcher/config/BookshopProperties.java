@@ -1,5 +1,6 @@
 package com.github.sanjayrawat1.bookshop.dispatcher.config;
 
+import java.time.Duration;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -23,4 +24,55 @@ public class BookshopProperties {
      * A message to welcome users.
      */
     private String greeting;
+
+    /**
+     * Settings for packing and labeling the accepted orders.
+     */
+    private final Dispatch dispatch = new Dispatch();
+
+    @Getter
+    @Setter
+    public static class Dispatch {
+
+        /**
+         * Number of partitions the accepted orders are spread over by order id. The partitions are packed in parallel, each on its
+         * own thread, while the orders of a partition are packed one at a time, in the order they were received.
+         */
+        private int partitions = 4;
+
+        /**
+         * Time spent packing each order. There is no warehouse behind this demo service, so it's zero unless the packing work is
+         * simulated, e.g. to measure how the throughput scales with the number of partitions.
+         */
+        private Duration packingTime = Duration.ZERO;
+
+        /**
+         * Whether the labeled orders are published in batches, a single message for many orders, rather than one message per order.
+         * Only enable it once all the consumers of the order dispatched events accept the batches.
+         */
+        private boolean batching = false;
+
+        /**
+         * Maximum number of orders published with a single batch.
+         */
+        private int batchSize = 100;
+
+        /**
+         * How long the first order of a batch waits for the following ones.
+         */
+        private Duration batchWindow = Duration.ofMillis(100);
+
+        /**
+         * How long the id of an accepted order is remembered at least, so that the copies of its order accepted event received
+         * within that window are dropped.
+         */
+        private Duration deduplicationWindow = Duration.ofMinutes(10);
+
+        /**
+         * Maximum number of order ids remembered for each deduplication window. When more orders are accepted within the window,
+         * the oldest ids are forgotten sooner, so that the memory held stays bounded: only the last maximum number to
+         * twice the maximum number of ids are remembered then.
+         */
+        private int deduplicationMaxSize = 100_000;
+    }
 }
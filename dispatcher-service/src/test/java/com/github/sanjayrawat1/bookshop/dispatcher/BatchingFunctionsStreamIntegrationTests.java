@@ -0,0 +1,49 @@
+package com.github.sanjayrawat1.bookshop.dispatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@SpringBootTest(properties = { "bookshop.dispatch.batching=true", "bookshop.dispatch.batch-size=10", "bookshop.dispatch.batch-window=200ms" })
+public class BatchingFunctionsStreamIntegrationTests {
+
+    private static final String ORDER_DISPATCHED = "order-dispatched";
+
+    @Autowired
+    private InputDestination input;
+
+    @Autowired
+    private OutputDestination output;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void whenManyOrdersAcceptedThenDispatchedInBatches() throws IOException {
+        for (long orderId = 1; orderId <= 25; orderId++) {
+            this.input.send(MessageBuilder.withPayload(new OrderAcceptedMessage(orderId)).build());
+        }
+
+        var batches = new ArrayList<OrderDispatchedBatch>();
+        var dispatchedOrderIds = new ArrayList<Long>();
+        while (dispatchedOrderIds.size() < 25) {
+            var batch = objectMapper.readValue(output.receive(5000, ORDER_DISPATCHED).getPayload(), OrderDispatchedBatch.class);
+            batches.add(batch);
+            dispatchedOrderIds.addAll(batch.orderIds());
+        }
+        assertThat(batches).hasSizeLessThan(25).allSatisfy(batch -> assertThat(batch.orderIds()).hasSizeBetween(1, 10));
+        assertThat(dispatchedOrderIds).containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(1, 25).boxed().toList());
+    }
+}
@@ -1,12 +1,20 @@
 package com.github.sanjayrawat1.bookshop.dispatcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sanjayrawat1.bookshop.dispatcher.config.BookshopProperties;
+import com.github.sanjayrawat1.bookshop.redelivery.DeadLetterRedelivery;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.cloud.stream.binder.test.InputDestination;
 import org.springframework.cloud.stream.binder.test.OutputDestination;
 import org.springframework.integration.support.MessageBuilder;
@@ -18,6 +26,8 @@ import org.springframework.messaging.Message;
 @SpringBootTest
 public class FunctionsStreamIntegrationTests {
 
+    private static final String ORDER_DISPATCHED = "order-dispatched";
+
     /**
      * Represents the input binding packlabel-in-0
      */
@@ -38,6 +48,21 @@ public class FunctionsStreamIntegrationTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private BookshopProperties bookshopProperties;
+
+    @Autowired
+    private OrderDeduplicator orderDeduplicator;
+
+    @MockBean
+    private DeadLetterRedelivery deadLetterRedelivery;
+
+    @BeforeEach
+    void setUp() {
+        // each test starts with no order remembered, whatever the orders accepted by the other tests.
+        orderDeduplicator.clear();
+    }
+
     @Test
     void whenOrderAcceptedThenDispatched() throws IOException {
         long orderId = 121;
@@ -45,6 +70,46 @@ public class FunctionsStreamIntegrationTests {
         Message<OrderDispatchedMessage> expectedOutputMessage = MessageBuilder.withPayload(new OrderDispatchedMessage(orderId)).build();
 
         this.input.send(inputMessage);
-        assertThat(objectMapper.readValue(output.receive().getPayload(), OrderDispatchedMessage.class)).isEqualTo(expectedOutputMessage.getPayload());
+        // the orders are packed asynchronously, on the thread of their partition.
+        assertThat(objectMapper.readValue(output.receive(5000, ORDER_DISPATCHED).getPayload(), OrderDispatchedMessage.class))
+            .isEqualTo(expectedOutputMessage.getPayload());
+    }
+
+    @Test
+    void whenOrderAcceptedTwiceThenDispatchedOnce() throws IOException {
+        long orderId = 121;
+        this.input.send(MessageBuilder.withPayload(new OrderAcceptedMessage(orderId)).build());
+        this.input.send(MessageBuilder.withPayload(new OrderAcceptedMessage(orderId)).build());
+
+        assertThat(objectMapper.readValue(output.receive(5000, ORDER_DISPATCHED).getPayload(), OrderDispatchedMessage.class).orderId()).isEqualTo(orderId);
+        assertThat(output.receive(500, ORDER_DISPATCHED)).isNull();
+    }
+
+    @Test
+    void whenOrderAcceptedEventCannotBeReadThenDeadLetteredAndDispatchingGoesOn() throws IOException {
+        var unreadable = "{\"orderId\": \"not-a-number\"}".getBytes(StandardCharsets.UTF_8);
+        this.input.send(MessageBuilder.withPayload(unreadable).setHeader("contentType", "application/json").build());
+        this.input.send(MessageBuilder.withPayload(new OrderAcceptedMessage(121L)).build());
+
+        assertThat(objectMapper.readValue(output.receive(5000, ORDER_DISPATCHED).getPayload(), OrderDispatchedMessage.class).orderId()).isEqualTo(121L);
+        verify(deadLetterRedelivery).deadLetter(argThat(message -> message.getPayload() == unreadable));
+    }
+
+    @Test
+    void whenManyOrdersAcceptedThenDispatchedInOrderWithinEachPartition() throws IOException {
+        int partitions = bookshopProperties.getDispatch().getPartitions();
+        for (long orderId = 1; orderId <= 200; orderId++) {
+            this.input.send(MessageBuilder.withPayload(new OrderAcceptedMessage(orderId)).build());
+        }
+
+        var dispatchedOrderIds = new ArrayList<Long>();
+        for (int i = 0; i < 200; i++) {
+            dispatchedOrderIds.add(objectMapper.readValue(output.receive(5000, ORDER_DISPATCHED).getPayload(), OrderDispatchedMessage.class).orderId());
+        }
+        assertThat(dispatchedOrderIds).hasSize(200).doesNotHaveDuplicates();
+        for (int partition = 0; partition < partitions; partition++) {
+            int p = partition;
+            assertThat(dispatchedOrderIds.stream().filter(orderId -> DispatchingFunctions.partitionOf(orderId, partitions) == p).toList()).isSorted();
+        }
     }
 }
@@ -0,0 +1,118 @@
+package com.github.sanjayrawat1.bookshop.dispatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.sanjayrawat1.bookshop.dispatcher.config.BookshopProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+public class OrderDeduplicatorTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MutableClock clock = new MutableClock();
+
+    private OrderDeduplicator orderDeduplicator;
+
+    @BeforeEach
+    void setUp() {
+        var bookshopProperties = new BookshopProperties();
+        bookshopProperties.getDispatch().setDeduplicationWindow(Duration.ofMinutes(10));
+        bookshopProperties.getDispatch().setDeduplicationMaxSize(3);
+        orderDeduplicator = new OrderDeduplicator(bookshopProperties, meterRegistry, clock);
+    }
+
+    @Test
+    void whenOrderSeenAgainWithinWindowThenDuplicate() {
+        assertThat(orderDeduplicator.firstSeen(0L)).isTrue();
+        assertThat(orderDeduplicator.firstSeen(121L)).isTrue();
+        assertThat(orderDeduplicator.firstSeen(121L)).isFalse();
+        assertThat(orderDeduplicator.firstSeen(0L)).isFalse();
+
+        assertThat(meterRegistry.get("bookshop.dispatch.deduplication").tag("result", "unique").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("bookshop.dispatch.deduplication").tag("result", "duplicate").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void whenWindowElapsedThenOrderRememberedForOneMoreWindowOnly() {
+        orderDeduplicator.firstSeen(121L);
+
+        clock.advance(Duration.ofMinutes(11));
+        assertThat(orderDeduplicator.firstSeen(121L)).isFalse();
+
+        clock.advance(Duration.ofMinutes(10));
+        assertThat(orderDeduplicator.firstSeen(121L)).isTrue();
+    }
+
+    @Test
+    void whenNoOrderForTwoWindowsThenAllForgotten() {
+        orderDeduplicator.firstSeen(121L);
+
+        clock.advance(Duration.ofMinutes(20));
+
+        assertThat(orderDeduplicator.firstSeen(121L)).isTrue();
+    }
+
+    @Test
+    void whenMaxSizeReachedThenOldestGenerationForgotten() {
+        for (long orderId = 1; orderId <= 7; orderId++) {
+            assertThat(orderDeduplicator.firstSeen(orderId)).isTrue();
+        }
+
+        // 1, 2 and 3 filled the first generation, 4, 5 and 6 the second one, and 7 replaced the first one.
+        assertThat(orderDeduplicator.firstSeen(1L)).isTrue();
+        assertThat(orderDeduplicator.firstSeen(5L)).isFalse();
+        assertThat(orderDeduplicator.firstSeen(7L)).isFalse();
+    }
+
+    @Test
+    void whenGenerationReplacedThenRotationCountedByCause() {
+        for (long orderId = 1; orderId <= 4; orderId++) {
+            orderDeduplicator.firstSeen(orderId);
+        }
+        clock.advance(Duration.ofMinutes(10));
+        orderDeduplicator.firstSeen(5L);
+
+        assertThat(meterRegistry.get("bookshop.dispatch.deduplication.rotations").tag("cause", "size").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bookshop.dispatch.deduplication.rotations").tag("cause", "window").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenOrderIdMissingThenLetThrough() {
+        assertThat(orderDeduplicator.firstSeen(null)).isTrue();
+        assertThat(orderDeduplicator.firstSeen(null)).isTrue();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2023-04-01T10:15:30Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -3,6 +3,7 @@ plugins {
     id("org.springframework.boot") version "3.0.5"
     id("io.spring.dependency-management") version "1.1.0"
     id("com.diffplug.spotless") version "6.16.0"
+    id("me.champeau.jmh") version "0.7.0"
 }
 
 group = "com.github.sanjayrawat1.bookshop"
@@ -44,6 +45,7 @@ dependencies {
     testImplementation("org.springframework.security:spring-security-test")
     testImplementation("io.projectreactor:reactor-test")
     testImplementation("org.testcontainers:junit-jupiter")
+    jmh("org.springframework:spring-test")
 }
 
 dependencyManagement {
@@ -77,6 +79,17 @@ springBoot {
     buildInfo()
 }
 
+jmh {
+    jmhVersion.set("1.36")
+    // a single fork with a short warmup keeps a full run within minutes, while still letting the JIT compile the hot paths.
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // machine-readable results, so that the runs of two commits can be diffed (e.g. with JMH Visualizer).
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
 spotless {
     java {
         toggleOffOn()
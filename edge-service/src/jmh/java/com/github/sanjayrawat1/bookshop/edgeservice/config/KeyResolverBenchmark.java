@@ -0,0 +1,53 @@
+package com.github.sanjayrawat1.bookshop.edgeservice.config;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Measures how the rate limiter bucket is resolved, which happens on every request going through the gateway.
+ * <p>
+ * Run with {@code ./gradlew jmh}, the results are written to build/results/jmh/results.json.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyResolverBenchmark {
+
+    private KeyResolver keyResolver;
+
+    private ServerWebExchange authenticatedExchange;
+
+    private ServerWebExchange anonymousExchange;
+
+    @Setup
+    public void setup() {
+        keyResolver = new RateLimiterConfiguration().keyResolver();
+        anonymousExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/books"));
+        Principal principal = () -> "sanjay";
+        authenticatedExchange = anonymousExchange.mutate().principal(Mono.just(principal)).build();
+    }
+
+    @Benchmark
+    public String resolveAuthenticated() {
+        return keyResolver.resolve(authenticatedExchange).block();
+    }
+
+    @Benchmark
+    public String resolveAnonymous() {
+        return keyResolver.resolve(anonymousExchange).block();
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.sanjayrawat1.bookshop.edgeservice.config;
 
+import java.time.Duration;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -23,4 +24,50 @@ public class BookshopProperties {
      * A message to welcome users.
      */
     private String greeting;
+
+    /**
+     * Settings for the rate limiter backing the RequestRateLimiter filter.
+     */
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    @Getter
+    @Setter
+    public static class RateLimiter {
+
+        /**
+         * Where the token buckets of the users are kept.
+         */
+        private Mode mode = Mode.HYBRID;
+
+        /**
+         * Maximum number of token buckets kept in memory. The users beyond it are not rate limited until idle buckets are evicted.
+         */
+        private int maxKeys = 100_000;
+
+        /**
+         * How long a bucket stays in memory once full again, i.e. once its user stopped sending requests.
+         */
+        private Duration idleTimeout = Duration.ofMinutes(1);
+
+        /**
+         * How often the idle buckets are evicted and, in hybrid mode, the tokens consumed are synced with the other instances.
+         */
+        private Duration syncInterval = Duration.ofSeconds(1);
+
+        public enum Mode {
+            /**
+             * The buckets are kept in Redis, each request costs a round trip to Redis.
+             */
+            REDIS,
+            /**
+             * The buckets are kept in memory, each instance rate limits the requests it receives on its own.
+             */
+            LOCAL,
+            /**
+             * The buckets are kept in memory, and the tokens consumed are synced with the other instances through Redis in the
+             * background, so that the limits apply to the whole cluster without a round trip to Redis for each request.
+             */
+            HYBRID,
+        }
+    }
 }
@@ -1,9 +1,15 @@
 package com.github.sanjayrawat1.bookshop.edgeservice.config;
 
+import com.github.sanjayrawat1.bookshop.edgeservice.ratelimit.LocalRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.security.Principal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 
 /**
  * Rate Limiter Configuration.
@@ -24,4 +30,22 @@ public class RateLimiterConfiguration {
     public KeyResolver keyResolver() {
         return exchange -> exchange.getPrincipal().map(Principal::getName).defaultIfEmpty("anonymous");
     }
+
+    /**
+     * The RequestRateLimiter filter uses the primary rate limiter, unless told otherwise. Unless the redis mode is set, it's the one
+     * keeping the token buckets in memory, and the Redis rate limiter of Spring Cloud Gateway is left unused.
+     *
+     * @return in-memory rate limiter.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnExpression("!'${bookshop.rate-limiter.mode:hybrid}'.equalsIgnoreCase('redis')")
+    public LocalRateLimiter localRateLimiter(
+        BookshopProperties bookshopProperties,
+        ReactiveStringRedisTemplate redisTemplate,
+        ConfigurationService configurationService,
+        MeterRegistry meterRegistry
+    ) {
+        return new LocalRateLimiter(bookshopProperties, redisTemplate, configurationService, meterRegistry);
+    }
 }
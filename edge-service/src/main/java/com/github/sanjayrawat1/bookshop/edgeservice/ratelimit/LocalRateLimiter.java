@@ -0,0 +1,247 @@
+package com.github.sanjayrawat1.bookshop.edgeservice.ratelimit;
+
+import com.github.sanjayrawat1.bookshop.edgeservice.config.BookshopProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rate limiter keeping the token buckets of the users in memory, so that the RequestRateLimiter filter doesn't cost a round trip
+ * to Redis for each request. It's configured with the same redis-rate-limiter arguments as the Redis rate limiter, so that one can
+ * be switched for the other with the bookshop.rate-limiter.mode property alone, and it returns the same headers.
+ * <p>
+ * Each bucket is a single long, the time at which it will be full again (the generic cell rate algorithm, equivalent to a token
+ * bucket), updated with compare-and-set, so that the requests of a user never wait for a lock. The buckets are held in a concurrent
+ * map, itself striped, and a bucket full again for the idle timeout is evicted, which loses nothing since a full bucket is the same
+ * as a missing one. The users beyond the maximum number of buckets are not rate limited, as when Redis is unavailable.
+ * <p>
+ * In hybrid mode, the tokens consumed on each instance are added up in Redis in the background, and the tokens consumed by the other
+ * instances are taken from the local buckets, so that the limits apply to the whole cluster, within a sync interval.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+public class LocalRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Config> implements SmartLifecycle {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final BookshopProperties.RateLimiter settings;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final Clock clock;
+
+    private volatile Disposable maintenance;
+
+    public LocalRateLimiter(
+        BookshopProperties bookshopProperties,
+        ReactiveStringRedisTemplate redisTemplate,
+        ConfigurationService configurationService,
+        MeterRegistry meterRegistry
+    ) {
+        this(bookshopProperties, redisTemplate, configurationService, meterRegistry, Clock.systemUTC());
+    }
+
+    LocalRateLimiter(
+        BookshopProperties bookshopProperties,
+        ReactiveStringRedisTemplate redisTemplate,
+        ConfigurationService configurationService,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        super(RedisRateLimiter.Config.class, RedisRateLimiter.CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.settings = bookshopProperties.getRateLimiter();
+        this.redisTemplate = settings.getMode() == BookshopProperties.RateLimiter.Mode.HYBRID ? redisTemplate : null;
+        this.clock = clock;
+        Gauge.builder("bookshop.rate-limiter.keys", buckets, Map::size).description("Token buckets kept in memory").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        var config = getConfig().get(routeId);
+        if (config == null) {
+            return Mono.error(new IllegalArgumentException("No Configuration found for route " + routeId));
+        }
+        long interval = NANOS_PER_SECOND / config.getReplenishRate();
+        long tolerance = interval * config.getBurstCapacity();
+        long cost = interval * config.getRequestedTokens();
+        long now = nanoTime();
+        var bucket = bucket(id, now);
+        if (bucket == null) {
+            log.debug("No token bucket left for {}, its request is allowed", id);
+            return Mono.just(new Response(true, headers(config, -1L)));
+        }
+        bucket.interval = interval;
+        bucket.tolerance = tolerance;
+        while (true) {
+            long fullAt = bucket.fullAt.get();
+            long start = Math.max(fullAt, now);
+            long backlog = start + cost - now;
+            if (backlog > tolerance) {
+                return Mono.just(new Response(false, headers(config, (tolerance - (start - now)) / interval)));
+            }
+            if (bucket.fullAt.compareAndSet(fullAt, start + cost)) {
+                if (redisTemplate != null) {
+                    bucket.unsynced.addAndGet(config.getRequestedTokens());
+                }
+                return Mono.just(new Response(true, headers(config, (tolerance - backlog) / interval)));
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        maintenance =
+            Flux
+                .interval(settings.getSyncInterval())
+                // a failure of one round never stops the next ones.
+                .concatMap(tick -> maintain().onErrorResume(exception -> Mono.empty()))
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        var disposable = maintenance;
+        if (disposable != null) {
+            disposable.dispose();
+        }
+        maintenance = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return maintenance != null;
+    }
+
+    /**
+     * Evicts the idle buckets, then, in hybrid mode, syncs the tokens consumed with the other instances.
+     */
+    Mono<Void> maintain() {
+        long now = nanoTime();
+        evictIdle(now, settings.getIdleTimeout().toNanos());
+        if (redisTemplate == null) {
+            return Mono.empty();
+        }
+        return Flux
+            .fromIterable(buckets.entrySet())
+            // the buckets full again with nothing consumed since the last sync have nothing to tell, nor to be told.
+            .filter(entry -> entry.getValue().unsynced.get() > 0 || entry.getValue().fullAt.get() > now)
+            .flatMap(entry -> sync(entry.getKey(), entry.getValue()))
+            .then();
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private Bucket bucket(String id, long now) {
+        var bucket = buckets.get(id);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= settings.getMaxKeys()) {
+            evictIdle(now, 0);
+            if (buckets.size() >= settings.getMaxKeys()) {
+                return null;
+            }
+        }
+        return buckets.computeIfAbsent(id, key -> new Bucket(now));
+    }
+
+    private void evictIdle(long now, long idleTimeout) {
+        buckets.entrySet().removeIf(entry -> entry.getValue().unsynced.get() == 0 && entry.getValue().fullAt.get() + idleTimeout <= now);
+    }
+
+    /**
+     * Adds the tokens consumed locally to the count of the whole cluster, and takes the ones consumed by the other instances since the
+     * last sync from the bucket. The count expires when no instance syncs it for the idle timeout. When Redis is unavailable, the
+     * tokens are kept for the next sync, and the requests are meanwhile rate limited by each instance on its own.
+     */
+    private Mono<Void> sync(String id, Bucket bucket) {
+        var key = "request_rate_limiter.{" + id + "}.consumed";
+        long consumed = bucket.unsynced.getAndSet(0);
+        return redisTemplate
+            .opsForValue()
+            .increment(key, consumed)
+            .flatMap(total -> redisTemplate.expire(key, settings.getIdleTimeout()).thenReturn(total))
+            .doOnNext(total -> bucket.synced(total, consumed, nanoTime()))
+            .onErrorResume(exception -> {
+                log.debug("Failed to sync the tokens consumed by {}", id, exception);
+                bucket.unsynced.addAndGet(consumed);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private long nanoTime() {
+        Instant instant = clock.instant();
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    private static Map<String, String> headers(RedisRateLimiter.Config config, long remaining) {
+        return Map.of(
+            RedisRateLimiter.REMAINING_HEADER,
+            String.valueOf(remaining),
+            RedisRateLimiter.REPLENISH_RATE_HEADER,
+            String.valueOf(config.getReplenishRate()),
+            RedisRateLimiter.BURST_CAPACITY_HEADER,
+            String.valueOf(config.getBurstCapacity()),
+            RedisRateLimiter.REQUESTED_TOKENS_HEADER,
+            String.valueOf(config.getRequestedTokens())
+        );
+    }
+
+    private static final class Bucket {
+
+        /**
+         * The time, in nanoseconds, at which the bucket will be full again.
+         */
+        private final AtomicLong fullAt;
+
+        /**
+         * The tokens consumed locally since the last sync.
+         */
+        private final AtomicLong unsynced = new AtomicLong();
+
+        private volatile long interval;
+
+        private volatile long tolerance;
+
+        /**
+         * The count of the whole cluster at the last sync, or -1 before the first one.
+         */
+        private long clusterTotal = -1;
+
+        private Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        private void synced(long total, long consumed, long now) {
+            long others = clusterTotal < 0 ? 0 : total - clusterTotal - consumed;
+            clusterTotal = total;
+            if (others <= 0) {
+                // the count expired and started over, or the other instances consumed nothing.
+                return;
+            }
+            long debit = others * interval;
+            // the bucket is left empty at most, so that an overshoot of the cluster is not paid for more than once.
+            fullAt.updateAndGet(fullAt -> Math.min(Math.max(fullAt, now) + debit, now + tolerance));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.sanjayrawat1.bookshop.edgeservice.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.github.sanjayrawat1.bookshop.edgeservice.config.BookshopProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class LocalRateLimiterTests {
+
+    private static final String ROUTE = "catalog-route";
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, String> valueOperations;
+
+    private final BookshopProperties bookshopProperties = new BookshopProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MutableClock clock = new MutableClock();
+
+    @BeforeEach
+    void setUp() {
+        bookshopProperties.getRateLimiter().setMode(BookshopProperties.RateLimiter.Mode.LOCAL);
+    }
+
+    @Test
+    void whenBurstCapacityConsumedThenRequestsDenied() {
+        var rateLimiter = rateLimiter();
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(isAllowed(rateLimiter, "bjorn").isAllowed()).isTrue();
+        }
+        var response = isAllowed(rateLimiter, "bjorn");
+
+        assertThat(response.isAllowed()).isFalse();
+        assertThat(response.getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "0");
+        assertThat(isAllowed(rateLimiter, "isabelle").isAllowed()).isTrue();
+    }
+
+    @Test
+    void whenTimeElapsedThenTokensReplenished() {
+        var rateLimiter = rateLimiter();
+        for (int i = 0; i < 20; i++) {
+            isAllowed(rateLimiter, "bjorn");
+        }
+
+        clock.advance(Duration.ofMillis(500));
+        var response = isAllowed(rateLimiter, "bjorn");
+
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "4");
+    }
+
+    @Test
+    void whenBucketIdleThenEvicted() {
+        var rateLimiter = rateLimiter();
+        isAllowed(rateLimiter, "bjorn");
+
+        clock.advance(Duration.ofSeconds(30));
+        rateLimiter.maintain().block();
+        assertThat(rateLimiter.size()).isEqualTo(1);
+
+        clock.advance(Duration.ofMinutes(1));
+        rateLimiter.maintain().block();
+        assertThat(rateLimiter.size()).isZero();
+        assertThat(meterRegistry.get("bookshop.rate-limiter.keys").gauge().value()).isZero();
+    }
+
+    @Test
+    void whenMaxKeysReachedThenOtherUsersNotRateLimited() {
+        bookshopProperties.getRateLimiter().setMaxKeys(1);
+        var rateLimiter = rateLimiter();
+        isAllowed(rateLimiter, "bjorn");
+
+        for (int i = 0; i < 30; i++) {
+            assertThat(isAllowed(rateLimiter, "isabelle").isAllowed()).isTrue();
+        }
+        assertThat(rateLimiter.size()).isEqualTo(1);
+
+        clock.advance(Duration.ofSeconds(1));
+        isAllowed(rateLimiter, "isabelle");
+        assertThat(rateLimiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void whenOtherInstancesConsumeTokensThenTakenFromLocalBucket() {
+        bookshopProperties.getRateLimiter().setMode(BookshopProperties.RateLimiter.Mode.HYBRID);
+        var key = "request_rate_limiter.{bjorn}.consumed";
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.expire(eq(key), any(Duration.class))).thenReturn(Mono.just(true));
+        when(valueOperations.increment(key, 1L)).thenReturn(Mono.just(1L));
+        when(valueOperations.increment(key, 0L)).thenReturn(Mono.just(16L));
+        var rateLimiter = rateLimiter();
+
+        isAllowed(rateLimiter, "bjorn");
+        rateLimiter.maintain().block();
+        rateLimiter.maintain().block();
+
+        assertThat(isAllowed(rateLimiter, "bjorn").getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "3");
+    }
+
+    @Test
+    void whenRedisUnavailableThenRateLimitedLocally() {
+        bookshopProperties.getRateLimiter().setMode(BookshopProperties.RateLimiter.Mode.HYBRID);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(Mono.error(new RedisConnectionFailureException("connection refused")));
+        var rateLimiter = rateLimiter();
+
+        for (int i = 0; i < 20; i++) {
+            isAllowed(rateLimiter, "bjorn");
+        }
+        rateLimiter.maintain().block();
+
+        assertThat(isAllowed(rateLimiter, "bjorn").isAllowed()).isFalse();
+    }
+
+    private LocalRateLimiter rateLimiter() {
+        var rateLimiter = new LocalRateLimiter(bookshopProperties, redisTemplate, null, meterRegistry, clock);
+        rateLimiter.getConfig().put(ROUTE, new RedisRateLimiter.Config().setReplenishRate(10).setBurstCapacity(20).setRequestedTokens(1));
+        return rateLimiter;
+    }
+
+    private static RateLimiter.Response isAllowed(LocalRateLimiter rateLimiter, String id) {
+        return rateLimiter.isAllowed(ROUTE, id).block();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2023-04-01T10:15:30Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
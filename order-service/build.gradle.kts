@@ -3,6 +3,7 @@ plugins {
     id("org.springframework.boot") version "3.0.5"
     id("io.spring.dependency-management") version "1.1.0"
     id("com.diffplug.spotless") version "6.16.0"
+    id("me.champeau.jmh") version "0.7.0"
 }
 
 group = "com.github.sanjayrawat1.bookshop"
@@ -34,7 +35,9 @@ dependencies {
     implementation("org.springframework.cloud:spring-cloud-starter-config")
     implementation("org.springframework.retry:spring-retry")
     implementation("org.springframework.cloud:spring-cloud-stream-binder-rabbit")
+    implementation("com.github.sanjayrawat1.bookshop:bookshop-redelivery:0.0.1-SNAPSHOT")
     implementation("org.springframework.boot:spring-boot-starter-oauth2-resource-server")
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     compileOnly("org.projectlombok:lombok")
 
@@ -70,6 +73,10 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+tasks.check {
+    dependsOn(gradle.includedBuild("bookshop-redelivery").task(":check"))
+}
+
 tasks.build {
     dependsOn("spotlessApply")
 }
@@ -90,6 +97,17 @@ springBoot {
     buildInfo()
 }
 
+jmh {
+    jmhVersion.set("1.36")
+    // a single fork with a short warmup keeps a full run within minutes, while still letting the JIT compile the hot paths.
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // machine-readable results, so that the runs of two commits can be diffed (e.g. with JMH Visualizer).
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
 spotless {
     java {
         toggleOffOn()
@@ -0,0 +1,84 @@
+package com.github.sanjayrawat1.bookshop.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.sanjayrawat1.bookshop.order.book.Book;
+import com.github.sanjayrawat1.bookshop.order.domain.Order;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderStatus;
+import com.github.sanjayrawat1.bookshop.order.event.OrderAcceptedMessage;
+import com.github.sanjayrawat1.bookshop.order.event.OrderDispatchedMessage;
+import com.github.sanjayrawat1.bookshop.order.web.rest.OrderRequest;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Measures the JSON mapping of the types exchanged by Order Service: the books received from Catalog Service, the orders
+ * and order requests of the REST API, and the messages exchanged with Dispatcher Service.
+ * <p>
+ * Run with {@code ./gradlew jmh}, the results are written to build/results/jmh/results.json.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonMappingBenchmark {
+
+    private static final Instant NOW = Instant.parse("2023-04-01T10:15:30Z");
+
+    private static final Map<String, Object> SAMPLES = Map.of(
+        "Book",
+        new Book("1234567890", "Cloud Native Spring in Action", "Thomas Vitale", 9.90),
+        "Order",
+        new Order(1L, "1234567890", "Cloud Native Spring in Action - Thomas Vitale", 9.90, 2, OrderStatus.ACCEPTED, NOW, NOW, "sanjay", "sanjay", 1),
+        "OrderRequest",
+        new OrderRequest("1234567890", 2),
+        "OrderAcceptedMessage",
+        new OrderAcceptedMessage(1L),
+        "OrderDispatchedMessage",
+        new OrderDispatchedMessage(1L)
+    );
+
+    @Param({ "Book", "Order", "OrderRequest", "OrderAcceptedMessage", "OrderDispatchedMessage" })
+    private String type;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private Object value;
+
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        // the same defaults Spring Boot applies to the ObjectMapper it auto-configures, which Spring Cloud Stream uses too.
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        value = SAMPLES.get(type);
+        writer = objectMapper.writerFor(value.getClass());
+        reader = objectMapper.readerFor(value.getClass());
+        json = writer.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import com.github.sanjayrawat1.bookshop.order.book.Book;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures how the orders are built from the book returned by Catalog Service, on every order submission.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderServiceBenchmark {
+
+    private final Book book = new Book("1234567890", "Cloud Native Spring in Action", "Thomas Vitale", 9.90);
+
+    @Benchmark
+    public Order buildAcceptedOrder() {
+        return OrderService.buildAcceptedOrder(book, 2);
+    }
+
+    @Benchmark
+    public Order buildRejectedOrder() {
+        return OrderService.buildRejectedOrder(book.isbn(), 2);
+    }
+}
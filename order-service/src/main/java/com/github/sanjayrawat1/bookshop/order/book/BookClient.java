@@ -1,10 +1,25 @@
 package com.github.sanjayrawat1.bookshop.order.book;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.sanjayrawat1.bookshop.order.config.ClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import java.time.Duration;
-import lombok.RequiredArgsConstructor;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
@@ -14,24 +29,340 @@ import reactor.util.retry.Retry;
  * @author Sanjay Singh Rawat
  */
 @Component
-@RequiredArgsConstructor
 public class BookClient {
 
+    private static final String BOOKS_API = "/books";
+
     private static final String BOOKS_ROOT_API = "/books/";
 
     private final WebClient catalogClient;
 
+    private final BookLookupBatcher batcher;
+
+    /**
+     * The lookups currently waiting for Catalog Service, shared by all the orders for the same book (single-flight).
+     */
+    private final Map<String, Mono<Book>> inFlightLookups = new ConcurrentHashMap<>();
+
+    /**
+     * The books recently returned by Catalog Service. They are reused as they are for a short time by the following orders,
+     * then revalidated with a conditional request until they are evicted.
+     */
+    private final Cache<String, KnownBook> knownBooks;
+
+    private final long ttlNanos;
+
+    private final long staleWhileRevalidateNanos;
+
+    private final long staleIfErrorNanos;
+
+    private final Counter cachedLookups;
+
+    private final Counter staleLookups;
+
+    private final Counter coalescedLookups;
+
+    private final Counter remoteLookups;
+
+    private final Counter unmodifiedRevalidations;
+
+    private final Counter modifiedRevalidations;
+
+    private final Counter failedRevalidations;
+
+    private final Timer staleness;
+
+    private final CatalogLatency singleLatency;
+
+    private final CatalogLatency batchLatency;
+
+    private final RetryBudget retryBudget;
+
+    private final Retry retry;
+
+    private final Counter hedgedRequests;
+
+    private final Counter rejectedHedges;
+
+    public BookClient(WebClient catalogClient, ClientProperties clientProperties, MeterRegistry meterRegistry) {
+        this.catalogClient = catalogClient;
+        var batching = clientProperties.catalogClient().batching();
+        this.batcher = batching.enabled() ? new BookLookupBatcher(this::fetchBooksByIsbn, batching.maxSize(), batching.window()) : null;
+        var cache = clientProperties.catalogClient().cache();
+        this.ttlNanos = cache.ttl().toNanos();
+        this.staleWhileRevalidateNanos = cache.staleWhileRevalidate().toNanos();
+        this.staleIfErrorNanos = cache.staleIfError().toNanos();
+        // the books are kept at least as long as they may be served stale.
+        var retention = Stream
+            .of(cache.retention(), cache.ttl().plus(cache.staleWhileRevalidate()), cache.ttl().plus(cache.staleIfError()))
+            .max(Duration::compareTo)
+            .orElseThrow();
+        this.knownBooks = Caffeine.newBuilder().maximumSize(cache.maxSize()).expireAfterWrite(retention).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownBooks, "catalogBooks");
+        // the coalescing ratio is the share of lookups served by an in-flight request rather than by a new one.
+        this.cachedLookups = lookupCounter(meterRegistry, "cache");
+        this.staleLookups = lookupCounter(meterRegistry, "stale");
+        this.coalescedLookups = lookupCounter(meterRegistry, "in-flight");
+        this.remoteLookups = lookupCounter(meterRegistry, "catalog");
+        this.unmodifiedRevalidations = revalidationCounter(meterRegistry, "not-modified");
+        this.modifiedRevalidations = revalidationCounter(meterRegistry, "modified");
+        this.failedRevalidations = revalidationCounter(meterRegistry, "failed");
+        this.staleness =
+            Timer
+                .builder("bookshop.catalog.book.staleness")
+                .description("How long before being served to an order a stale book was last fetched from, or revalidated with, Catalog Service")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        var requests = clientProperties.catalogClient().requests();
+        this.singleLatency = new CatalogLatency(meterRegistry, "single", requests);
+        this.batchLatency = new CatalogLatency(meterRegistry, "batch", requests);
+        this.retryBudget = new RetryBudget(requests.retryBudgetRatio(), requests.retryBudgetMaxTokens());
+        var rejectedRetries = budgetExhaustedCounter(meterRegistry, "retry");
+        this.retry =
+            Retry
+                .backoff(3, Duration.ofMillis(100))
+                .filter(exception -> {
+                    if (retryBudget.tryWithdraw()) {
+                        return true;
+                    }
+                    rejectedRetries.increment();
+                    return false;
+                });
+        this.hedgedRequests =
+            Counter
+                .builder("bookshop.catalog.request.hedged")
+                .description("Requests sent again to Catalog Service because the first one was slower than usual")
+                .register(meterRegistry);
+        this.rejectedHedges = budgetExhaustedCounter(meterRegistry, "hedge");
+    }
+
+    /**
+     * Returns the book with the given ISBN, or an empty Mono when it doesn't exist or Catalog Service could not be reached.
+     * <p>
+     * When a popular book goes on sale, many orders look it up at the same time: they all share the same request to Catalog Service,
+     * with its timeout and retries, and the book is then reused for a few seconds without calling Catalog Service at all.
+     * Afterwards, the book is revalidated with its ETag, and Catalog Service answers 304 Not Modified with no body unless it changed.
+     * <p>
+     * Shortly after its ttl, the book is served as it is while it's revalidated in the background (stale-while-revalidate), and
+     * when Catalog Service cannot be reached, the book is served as it is for a grace period (stale-if-error), rather than
+     * rejecting the orders.
+     */
     public Mono<Book> getBookByIsbn(String isbn) {
-        return catalogClient
-            .get()
-            .uri(BOOKS_ROOT_API + isbn)
-            .retrieve()
-            .bodyToMono(Book.class)
-            .timeout(Duration.ofSeconds(3), Mono.empty())
-            // return an empty object when a 404 response is received.
-            .onErrorResume(WebClientResponseException.NotFound.class, exception -> Mono.empty())
-            .retryWhen(Retry.backoff(3, Duration.ofMillis(100)))
-            // if an error happens after the 3 retries, catch the exception and return an empty object.
-            .onErrorResume(Exception.class, exception -> Mono.empty());
+        return Mono.defer(() -> {
+            var knownBook = knownBooks.getIfPresent(isbn);
+            long age = knownBook != null ? System.nanoTime() - knownBook.fetchedAt() : Long.MAX_VALUE;
+            if (age < ttlNanos) {
+                cachedLookups.increment();
+                return Mono.just(knownBook.book());
+            }
+            if (age - ttlNanos < staleWhileRevalidateNanos) {
+                sharedLookup(isbn, knownBook, false).subscribe();
+                staleLookups.increment();
+                staleness.record(age, TimeUnit.NANOSECONDS);
+                return Mono.just(knownBook.book());
+            }
+            return sharedLookup(isbn, knownBook, true);
+        });
+    }
+
+    /**
+     * Looks up several books with a single request. The books that don't exist are left out, and so are all of them
+     * if Catalog Service cannot be reached.
+     */
+    public Flux<Book> getBooksByIsbn(Set<String> isbns) {
+        return fetchBooksByIsbn(isbns).map(KnownBook::book);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    /**
+     * Fetches several books with a single request, each with its ETag, so that the books first fetched in a batch are revalidated
+     * with a conditional request afterwards, like the ones fetched on their own.
+     */
+    private Flux<KnownBook> fetchBooksByIsbn(Set<String> isbns) {
+        return send(
+            batchLatency,
+            () ->
+                catalogClient
+                    .get()
+                    .uri(uriBuilder -> uriBuilder.path(BOOKS_API).queryParam("isbn", String.join(",", isbns)).build())
+                    .retrieve()
+                    .bodyToFlux(CatalogBook.class)
+                    .map(CatalogBook::toKnownBook)
+                    // collects the whole response before retrying, so that a failure halfway through doesn't emit the same books twice.
+                    .collectList()
+        )
+            .retryWhen(retry)
+            .onErrorResume(Exception.class, exception -> Mono.empty())
+            .doOnSubscribe(subscription -> retryBudget.deposit())
+            .flatMapIterable(books -> books);
+    }
+
+    /**
+     * Returns the lookup of the book currently waiting for Catalog Service, if any, otherwise starts a new one.
+     */
+    private Mono<Book> sharedLookup(String isbn, KnownBook knownBook, boolean counted) {
+        var inFlightLookup = inFlightLookups.get(isbn);
+        if (inFlightLookup == null) {
+            // cache() shares the result with every subscriber, and it doesn't cancel the request when one of them goes away.
+            var newLookup = (knownBook != null ? fetchBookByIsbn(isbn, knownBook) : lookUp(isbn))
+                .doOnNext(book -> {
+                    // a book served stale is not stored again, otherwise it would never expire.
+                    if (book != knownBook) {
+                        knownBooks.put(isbn, book);
+                    }
+                })
+                .map(KnownBook::book)
+                // removed before the result is passed on, otherwise a lookup started right after it would still join this one.
+                .doOnTerminate(() -> inFlightLookups.remove(isbn))
+                .cache();
+            inFlightLookup = inFlightLookups.putIfAbsent(isbn, newLookup);
+            if (inFlightLookup == null) {
+                if (counted) {
+                    remoteLookups.increment();
+                }
+                return newLookup;
+            }
+        }
+        if (counted) {
+            coalescedLookups.increment();
+        }
+        return inFlightLookup;
+    }
+
+    private Mono<KnownBook> lookUp(String isbn) {
+        return batcher != null ? batcher.getBookByIsbn(isbn) : fetchBookByIsbn(isbn, null);
+    }
+
+    /**
+     * Fetches a single book. When the book is already known, the request is conditional, so that its body is only downloaded
+     * if the book changed since it was fetched.
+     */
+    private Mono<KnownBook> fetchBookByIsbn(String isbn, KnownBook knownBook) {
+        var eTag = knownBook != null ? knownBook.eTag() : null;
+        return send(
+            singleLatency,
+            () ->
+                catalogClient
+                    .get()
+                    .uri(BOOKS_ROOT_API + isbn)
+                    .headers(headers -> {
+                        if (eTag != null) {
+                            headers.setIfNoneMatch(eTag);
+                        }
+                    })
+                    .retrieve()
+                    .toEntity(Book.class)
+        )
+            .map(response -> {
+                if (eTag == null) {
+                    return KnownBook.of(response.getBody(), response.getHeaders().getETag());
+                }
+                if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                    unmodifiedRevalidations.increment();
+                    return KnownBook.of(knownBook.book(), eTag);
+                }
+                modifiedRevalidations.increment();
+                return KnownBook.of(response.getBody(), response.getHeaders().getETag());
+            })
+            // return an empty object when a 404 response is received, and forget the book if it was removed from the catalog.
+            .onErrorResume(
+                WebClientResponseException.NotFound.class,
+                exception -> {
+                    knownBooks.invalidate(isbn);
+                    return Mono.empty();
+                }
+            )
+            // retries are bounded by the retry budget, so that they cannot pile up on a Catalog Service that is already struggling.
+            .retryWhen(retry)
+            // if an error happens after the 3 retries, catch the exception and return the known book while it's not too stale, or an empty object.
+            .onErrorResume(Exception.class, exception -> staleIfError(knownBook))
+            .doOnSubscribe(subscription -> retryBudget.deposit());
+    }
+
+    private Mono<KnownBook> staleIfError(KnownBook knownBook) {
+        if (knownBook == null) {
+            return Mono.empty();
+        }
+        failedRevalidations.increment();
+        long age = System.nanoTime() - knownBook.fetchedAt();
+        if (age - ttlNanos >= staleIfErrorNanos) {
+            return Mono.empty();
+        }
+        staleness.record(age, TimeUnit.NANOSECONDS);
+        return Mono.just(knownBook);
+    }
+
+    /**
+     * Sends a request with a timeout adapted to the recent latency of Catalog Service, and fails with a TimeoutException when it times out.
+     * <p>
+     * When the request is slower than 95% of the recent ones, e.g. because it reached a slow instance of Catalog Service, the same
+     * request is sent a second time: the first response wins, and the other request is cancelled. The hedged requests are withdrawn
+     * from the retry budget, so that at most a small share of the requests are sent twice.
+     */
+    private <T> Mono<T> send(CatalogLatency latency, Supplier<Mono<T>> request) {
+        return Mono.defer(() -> {
+            var timedRequest = Mono.defer(() -> {
+                long start = System.nanoTime();
+                return request.get().doFinally(signal -> latency.record(System.nanoTime() - start));
+            });
+            var hedgeDelay = latency.hedgeDelay();
+            var response = hedgeDelay == null
+                ? timedRequest
+                : Mono.firstWithSignal(timedRequest, Mono.delay(hedgeDelay).then(Mono.defer(() -> hedge(timedRequest))));
+            return response.timeout(latency.timeout());
+        });
+    }
+
+    private <T> Mono<T> hedge(Mono<T> request) {
+        if (!retryBudget.tryWithdraw()) {
+            rejectedHedges.increment();
+            // leaves the first request alone, until it completes or times out.
+            return Mono.never();
+        }
+        hedgedRequests.increment();
+        return request;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String source) {
+        return Counter
+            .builder("bookshop.catalog.book.lookups")
+            .description("Book lookups by where the book was taken from")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+
+    private static Counter budgetExhaustedCounter(MeterRegistry meterRegistry, String attempt) {
+        return Counter
+            .builder("bookshop.catalog.request.budget.exhausted")
+            .description("Retries and hedged requests not sent to Catalog Service because the retry budget was exhausted")
+            .tag("attempt", attempt)
+            .register(meterRegistry);
+    }
+
+    private static Counter revalidationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter
+            .builder("bookshop.catalog.book.revalidations")
+            .description("Conditional requests for books already known, by whether the book had changed")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * A book as returned by Catalog Service, along with its id and optimistic locking version, from which its ETag is derived.
+     */
+    private record CatalogBook(Long id, String isbn, String title, String author, Double price, Integer version) {
+        /**
+         * The same ETag as Catalog Service returns for the book on its own, e.g. "42-3", or null when the book has no id or version.
+         */
+        KnownBook toKnownBook() {
+            var eTag = id != null && version != null ? "\"" + id + "-" + version + "\"" : null;
+            return KnownBook.of(new Book(isbn, title, author, price), eTag);
+        }
     }
 }
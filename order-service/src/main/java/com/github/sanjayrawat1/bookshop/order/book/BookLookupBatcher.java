@@ -0,0 +1,75 @@
+package com.github.sanjayrawat1.bookshop.order.book;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Merges the book lookups arriving within a small time window into a single batch lookup, and fans the results back out to each caller.
+ * <p>
+ * A batch is sent as soon as it holds maxSize lookups or its window is over, whichever comes first. Under low load a lookup is delayed
+ * by at most the window, while under an order burst many lookups share one round trip to Catalog Service.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+public class BookLookupBatcher {
+
+    private final Function<Set<String>, Flux<KnownBook>> batchLookup;
+
+    private FluxSink<Lookup> lookups;
+
+    public BookLookupBatcher(Function<Set<String>, Flux<KnownBook>> batchLookup, int maxSize, Duration window) {
+        this.batchLookup = batchLookup;
+        // the FluxSink is thread-safe, so lookups can be submitted concurrently from any request.
+        Flux.<Lookup>create(sink -> this.lookups = sink).bufferTimeout(maxSize, window).flatMap(this::lookUp).subscribe();
+    }
+
+    /**
+     * Returns the book with the given ISBN and its ETag, or an empty Mono when it doesn't exist or Catalog Service could not be reached.
+     */
+    Mono<KnownBook> getBookByIsbn(String isbn) {
+        return Mono.defer(() -> {
+            var result = Sinks.<KnownBook>one();
+            lookups.next(new Lookup(isbn, result));
+            return result.asMono();
+        });
+    }
+
+    /**
+     * Stops accepting lookups. The ones already submitted are still sent as a last batch.
+     */
+    public void close() {
+        lookups.complete();
+    }
+
+    private Mono<Void> lookUp(List<Lookup> batch) {
+        var isbns = batch.stream().map(Lookup::isbn).collect(Collectors.toSet());
+        log.debug("Looking up {} books for a batch of {} requests", isbns.size(), batch.size());
+        return batchLookup
+            .apply(isbns)
+            .collectMap(knownBook -> knownBook.book().isbn())
+            .onErrorResume(exception -> Mono.just(Map.of()))
+            .doOnNext(books -> batch.forEach(lookup -> lookup.complete(books)))
+            .then();
+    }
+
+    private record Lookup(String isbn, Sinks.One<KnownBook> result) {
+        void complete(Map<String, KnownBook> books) {
+            var book = books.get(isbn);
+            if (book != null) {
+                result.tryEmitValue(book);
+            } else {
+                result.tryEmitEmpty();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.sanjayrawat1.bookshop.order.book;
+
+import com.github.sanjayrawat1.bookshop.order.config.ClientProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of the recent requests of a kind to Catalog Service, from which the timeout of the next requests,
+ * and the delay after which they are hedged, are derived.
+ * <p>
+ * The latency is recorded in a timer whose percentiles are computed over a rolling window of a minute, so that the timeout
+ * follows Catalog Service when it slows down or recovers. The requests cancelled because they were too slow are recorded too,
+ * with the time they lasted, otherwise a slowdown would only be seen through the requests that are fast enough to complete.
+ *
+ * @author Sanjay Singh Rawat
+ */
+class CatalogLatency {
+
+    private static final long REFRESH_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final Timer timer;
+
+    private final ClientProperties.Requests requests;
+
+    private volatile Limits limits;
+
+    CatalogLatency(MeterRegistry meterRegistry, String request, ClientProperties.Requests requests) {
+        this.timer =
+            Timer
+                .builder("bookshop.catalog.request.latency")
+                .description("Latency of the requests to Catalog Service, including the ones cancelled by a timeout or a faster hedged request")
+                .tag("request", request)
+                .publishPercentiles(0.95, 0.99)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+        this.requests = requests;
+        this.limits = new Limits(requests.maxTimeout(), null, System.nanoTime());
+    }
+
+    void record(long nanos) {
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A multiple of the recent 99th percentile, within the configured bounds. Until there are recent requests, it's the maximum timeout.
+     */
+    Duration timeout() {
+        return limits().timeout();
+    }
+
+    /**
+     * The recent 95th percentile, so that about one request out of twenty is hedged, or null when requests should not be hedged.
+     */
+    Duration hedgeDelay() {
+        return limits().hedgeDelay();
+    }
+
+    private Limits limits() {
+        var current = limits;
+        long now = System.nanoTime();
+        if (now - current.computedAt() < REFRESH_NANOS) {
+            return current;
+        }
+        double p95 = 0;
+        double p99 = 0;
+        for (var percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                p95 = percentile.value(TimeUnit.NANOSECONDS);
+            } else if (percentile.percentile() == 0.99) {
+                p99 = percentile.value(TimeUnit.NANOSECONDS);
+            }
+        }
+        var timeout = requests.maxTimeout();
+        Duration hedgeDelay = null;
+        if (p99 > 0) {
+            var adaptiveTimeout = Duration.ofNanos((long) (p99 * requests.timeoutMultiplier()));
+            timeout = adaptiveTimeout.compareTo(requests.minTimeout()) < 0 ? requests.minTimeout() : adaptiveTimeout;
+            timeout = timeout.compareTo(requests.maxTimeout()) > 0 ? requests.maxTimeout() : timeout;
+        }
+        if (requests.hedging() && p95 > 0) {
+            var p95Delay = Duration.ofNanos((long) p95);
+            hedgeDelay = p95Delay.compareTo(requests.minHedgeDelay()) < 0 ? requests.minHedgeDelay() : p95Delay;
+            // a request hedged after its timeout would never be sent.
+            hedgeDelay = hedgeDelay.compareTo(timeout) < 0 ? hedgeDelay : null;
+        }
+        var newLimits = new Limits(timeout, hedgeDelay, now);
+        limits = newLimits;
+        return newLimits;
+    }
+
+    private record Limits(Duration timeout, Duration hedgeDelay, long computedAt) {}
+}
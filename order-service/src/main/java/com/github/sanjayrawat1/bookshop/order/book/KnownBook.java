@@ -0,0 +1,12 @@
+package com.github.sanjayrawat1.bookshop.order.book;
+
+/**
+ * A book fetched from Catalog Service, with its ETag when the response had one, and the time when it was fetched or last revalidated.
+ *
+ * @author Sanjay Singh Rawat
+ */
+record KnownBook(Book book, String eTag, long fetchedAt) {
+    static KnownBook of(Book book, String eTag) {
+        return new KnownBook(book, eTag, System.nanoTime());
+    }
+}
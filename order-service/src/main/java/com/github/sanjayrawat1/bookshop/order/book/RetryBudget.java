@@ -0,0 +1,37 @@
+package com.github.sanjayrawat1.bookshop.order.book;
+
+/**
+ * Bounds the retries, and the hedged requests, to a share of the requests sent to Catalog Service, so that they cannot multiply
+ * the load on Catalog Service when it's already struggling.
+ * <p>
+ * Each request deposits a fraction of a token, and each retry withdraws a whole one. The balance is capped, and starts full,
+ * so that a few retries are always possible when there is little traffic.
+ *
+ * @author Sanjay Singh Rawat
+ */
+class RetryBudget {
+
+    private final double ratio;
+
+    private final double maxBalance;
+
+    private double balance;
+
+    RetryBudget(double ratio, int maxBalance) {
+        this.ratio = ratio;
+        this.maxBalance = maxBalance;
+        this.balance = maxBalance;
+    }
+
+    synchronized void deposit() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+}
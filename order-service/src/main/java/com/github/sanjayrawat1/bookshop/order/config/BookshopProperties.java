@@ -1,5 +1,6 @@
 package com.github.sanjayrawat1.bookshop.order.config;
 
+import java.time.Duration;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -23,4 +24,143 @@ public class BookshopProperties {
      * A message to welcome users.
      */
     private String greeting;
+
+    /**
+     * Settings for listing the order history of a user.
+     */
+    private final Pagination pagination = new Pagination();
+
+    /**
+     * Settings for submitting batches of orders.
+     */
+    private final Batch batch = new Batch();
+
+    /**
+     * Settings for keeping the idempotency keys of the order submissions.
+     */
+    private final Idempotency idempotency = new Idempotency();
+
+    /**
+     * Settings for relaying the order events saved in the outbox to RabbitMQ.
+     */
+    private final Outbox outbox = new Outbox();
+
+    /**
+     * Settings for applying the order dispatched events to the orders.
+     */
+    private final Dispatch dispatch = new Dispatch();
+
+    @Getter
+    @Setter
+    public static class Pagination {
+
+        /**
+         * Number of orders returned in a page when the client doesn't ask for a specific limit.
+         */
+        private int defaultLimit = 20;
+
+        /**
+         * Upper bound for the page size a client can ask for.
+         */
+        private int maxLimit = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /**
+         * Upper bound for the number of order lines a client can submit in a single request.
+         */
+        private int maxLines = 1000;
+
+        /**
+         * Maximum number of books looked up in Catalog Service at the same time for a batch.
+         */
+        private int lookupConcurrency = 16;
+
+        /**
+         * Number of orders inserted with a single statement, each chunk being committed, then returned, in its own transaction.
+         */
+        private int chunkSize = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Idempotency {
+
+        /**
+         * How long the idempotency key of a submission is kept at least, i.e. how long a retried submission still returns the order
+         * created the first time. The keys are purged afterwards, within a purge interval, and a submission retried later on
+         * creates a new order.
+         */
+        private Duration retention = Duration.ofHours(24);
+
+        /**
+         * How often the idempotency keys older than the retention are purged.
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+
+        /**
+         * Maximum number of idempotency keys deleted with a single statement, so that a purge never holds many locks at once.
+         */
+        private int purgeBatchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Outbox {
+
+        /**
+         * How often the outbox is polled for events to publish. A full batch is followed by the next one without waiting.
+         */
+        private Duration pollInterval = Duration.ofMillis(500);
+
+        /**
+         * Maximum number of events published, then deleted from the outbox, in a single transaction.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Whether an event is deleted from the outbox only once RabbitMQ confirms it, rather than once it is sent.
+         * It requires the publisher confirms to be enabled on the acceptOrder-out-0 binding (use-confirm-header).
+         */
+        private boolean publisherConfirms = true;
+
+        /**
+         * How long to wait for RabbitMQ to confirm a batch. The events not confirmed in time are published again by the next poll.
+         */
+        private Duration confirmTimeout = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Dispatch {
+
+        /**
+         * Maximum number of order dispatched events applied with a single update statement. It should not exceed the prefetch
+         * of the dispatchOrder-in-0 binding, since the events are acknowledged only once their batch is committed.
+         */
+        private int batchSize = 100;
+
+        /**
+         * How long the first event of a batch waits for the following ones before the batch is applied anyway.
+         */
+        private Duration batchWindow = Duration.ofMillis(100);
+
+        /**
+         * Maximum number of batches applied at the same time.
+         */
+        private int concurrency = 2;
+
+        /**
+         * Number of retries of a failed batch, before its events are applied one at a time.
+         */
+        private int retryMaxAttempts = 3;
+
+        /**
+         * Delay before the first retry of a failed batch, doubled for each following retry.
+         */
+        private Duration retryBackoff = Duration.ofMillis(200);
+    }
 }
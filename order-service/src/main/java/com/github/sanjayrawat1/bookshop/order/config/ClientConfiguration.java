@@ -1,8 +1,13 @@
 package com.github.sanjayrawat1.bookshop.order.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
  * Spring WebClient configuration.
@@ -12,8 +17,37 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class ClientConfiguration {
 
+    /**
+     * A pool of connections dedicated to Catalog Service, bounded both in connections and in requests waiting for one,
+     * so that a burst of orders neither opens thousands of sockets nor queues requests forever.
+     * <p>
+     * The pool metrics (reactor.netty.connection.provider.*) are registered in the global Micrometer registry,
+     * which Spring Boot adds its own registry to, so they are exposed on the prometheus endpoint.
+     */
+    @Bean(destroyMethod = "dispose")
+    ConnectionProvider catalogConnectionProvider(ClientProperties clientProperties) {
+        var connections = clientProperties.catalogClient().connections();
+        return ConnectionProvider
+            .builder("catalog")
+            .maxConnections(connections.maxConnections())
+            .pendingAcquireMaxCount(connections.pendingAcquireMaxCount())
+            .pendingAcquireTimeout(connections.pendingAcquireTimeout())
+            .maxIdleTime(connections.maxIdleTime())
+            .maxLifeTime(connections.maxLifeTime())
+            .evictInBackground(connections.evictionInterval())
+            .metrics(true)
+            .build();
+    }
+
     @Bean
-    WebClient catalogClient(WebClient.Builder builder, ClientProperties clientProperties) {
-        return builder.baseUrl(clientProperties.catalogServiceUri().toString()).build();
+    WebClient catalogClient(WebClient.Builder builder, ClientProperties clientProperties, ConnectionProvider catalogConnectionProvider) {
+        var connections = clientProperties.catalogClient().connections();
+        var httpClient = HttpClient
+            .create(catalogConnectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connections.connectTimeout().toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, connections.keepAlive())
+            // with both protocols, HTTP/2 is negotiated with an upgrade request, and HTTP/1.1 is kept if Catalog Service doesn't support it.
+            .protocol(connections.h2c() ? new HttpProtocol[] { HttpProtocol.H2C, HttpProtocol.HTTP11 } : new HttpProtocol[] { HttpProtocol.HTTP11 });
+        return builder.baseUrl(clientProperties.catalogServiceUri().toString()).clientConnector(new ReactorClientHttpConnector(httpClient)).build();
     }
 }
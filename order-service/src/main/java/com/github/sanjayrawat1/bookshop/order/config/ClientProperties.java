@@ -2,10 +2,93 @@ package com.github.sanjayrawat1.bookshop.order.config;
 
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
 /**
  * @author Sanjay Singh Rawat
  */
 @ConfigurationProperties(prefix = "bookshop")
-public record ClientProperties(@NotNull URI catalogServiceUri) {}
+public record ClientProperties(@NotNull URI catalogServiceUri, @DefaultValue CatalogClient catalogClient) {
+    /**
+     * Settings of the client calling Catalog Service.
+     *
+     * @param batching settings for merging concurrent book lookups into a single request.
+     * @param cache settings for reusing the books recently looked up.
+     * @param connections settings for the connections opened to Catalog Service.
+     * @param requests settings for timing out, hedging and retrying the requests to Catalog Service.
+     */
+    public record CatalogClient(
+        @DefaultValue Batching batching,
+        @DefaultValue Cache cache,
+        @DefaultValue Connections connections,
+        @DefaultValue Requests requests
+    ) {}
+
+    /**
+     * @param enabled whether concurrent book lookups are merged into a single request to Catalog Service.
+     * @param window how long a lookup waits for other lookups to join its batch.
+     * @param maxSize the number of lookups that makes a batch be sent before its window is over.
+     */
+    public record Batching(@DefaultValue("true") boolean enabled, @DefaultValue("5ms") Duration window, @DefaultValue("50") int maxSize) {}
+
+    /**
+     * @param ttl how long a book looked up in Catalog Service is reused for the following orders, without asking Catalog Service again.
+     * @param retention how long a book is kept after being fetched or revalidated, so that once its ttl is over it's revalidated with
+     * a conditional request rather than downloaded again.
+     * @param maxSize the maximum number of books kept in the cache.
+     * @param staleWhileRevalidate how long after its ttl a book is still served as it is, while it's revalidated in the background.
+     * @param staleIfError how long after its ttl a book is still served as it is when Catalog Service cannot be reached.
+     */
+    public record Cache(
+        @DefaultValue("5s") Duration ttl,
+        @DefaultValue("10m") Duration retention,
+        @DefaultValue("1000") int maxSize,
+        @DefaultValue("30s") Duration staleWhileRevalidate,
+        @DefaultValue("10m") Duration staleIfError
+    ) {}
+
+    /**
+     * @param maxConnections the maximum number of connections opened to Catalog Service, however many orders are submitted at once.
+     * @param pendingAcquireMaxCount the maximum number of requests waiting for a connection, beyond which requests fail right away.
+     * @param pendingAcquireTimeout how long a request waits for a connection before failing.
+     * @param maxIdleTime how long a connection is kept open without being used.
+     * @param maxLifeTime how long a connection is kept open at most, so that new instances of Catalog Service get their share of requests.
+     * @param evictionInterval how often the idle and expired connections are closed in the background, rather than when they are acquired.
+     * @param connectTimeout how long to wait for a TCP connection to be established with Catalog Service.
+     * @param keepAlive whether TCP keep-alive probes are sent on idle connections.
+     * @param h2c whether HTTP/2 over cleartext is negotiated with Catalog Service, so that concurrent requests share a few connections.
+     * It requires server.http2.enabled in Catalog Service, and falls back to HTTP/1.1 otherwise.
+     */
+    public record Connections(
+        @DefaultValue("50") int maxConnections,
+        @DefaultValue("500") int pendingAcquireMaxCount,
+        @DefaultValue("2s") Duration pendingAcquireTimeout,
+        @DefaultValue("30s") Duration maxIdleTime,
+        @DefaultValue("5m") Duration maxLifeTime,
+        @DefaultValue("30s") Duration evictionInterval,
+        @DefaultValue("2s") Duration connectTimeout,
+        @DefaultValue("true") boolean keepAlive,
+        @DefaultValue("false") boolean h2c
+    ) {}
+
+    /**
+     * @param minTimeout the lower bound of the timeout of a request.
+     * @param maxTimeout the upper bound of the timeout of a request, which is also its timeout until the latency of Catalog Service is known.
+     * @param timeoutMultiplier the timeout of a request, as a multiple of the 99th percentile of the recent requests.
+     * @param hedging whether a second request is sent when the first one is slower than 95% of the recent requests, the first answer winning.
+     * @param minHedgeDelay the lower bound of how long a request waits before being hedged.
+     * @param retryBudgetRatio the number of retries and hedged requests allowed for each request sent to Catalog Service.
+     * @param retryBudgetMaxTokens the number of retries and hedged requests allowed in a row, whatever the number of requests sent before.
+     */
+    public record Requests(
+        @DefaultValue("250ms") Duration minTimeout,
+        @DefaultValue("3s") Duration maxTimeout,
+        @DefaultValue("3") double timeoutMultiplier,
+        @DefaultValue("true") boolean hedging,
+        @DefaultValue("10ms") Duration minHedgeDelay,
+        @DefaultValue("0.1") double retryBudgetRatio,
+        @DefaultValue("10") int retryBudgetMaxTokens
+    ) {}
+}
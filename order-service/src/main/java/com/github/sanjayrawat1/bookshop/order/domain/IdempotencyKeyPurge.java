@@ -0,0 +1,75 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Deletes the idempotency keys of the order submissions once they are older than their retention, so that the table holding them
+ * doesn't grow with every submission sent with a key. The orders themselves are kept.
+ * <p>
+ * The keys are purged in the background, batch after batch, each batch with its own statement. Every instance runs the purge,
+ * which is harmless since deleting a key twice deletes nothing the second time.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyPurge {
+
+    private final OrderRepository orderRepository;
+
+    private final BookshopProperties bookshopProperties;
+
+    private Disposable purging;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purging =
+            Flux
+                .interval(bookshopProperties.getIdempotency().getPurgeInterval())
+                // a purge that lasts longer than the interval makes the next ticks be dropped, instead of piling up.
+                .onBackpressureDrop()
+                .concatMap(tick -> purgeExpiredKeys(), 0)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purging != null) {
+            purging.dispose();
+        }
+    }
+
+    /**
+     * Deletes the idempotency keys created before the retention, batch after batch, until a batch isn't full.
+     *
+     * @return the number of keys deleted.
+     */
+    public Mono<Integer> purgeExpiredKeys() {
+        var idempotency = bookshopProperties.getIdempotency();
+        var createdBefore = Instant.now().minus(idempotency.getRetention());
+        int batchSize = idempotency.getPurgeBatchSize();
+        return Mono
+            .defer(() -> orderRepository.deleteIdempotencyKeysCreatedBefore(createdBefore, batchSize))
+            .expand(deleted -> deleted == batchSize ? orderRepository.deleteIdempotencyKeysCreatedBefore(createdBefore, batchSize) : Mono.empty())
+            .reduce(0, Integer::sum)
+            .doOnNext(deleted -> log.debug("Purged {} idempotency keys created before {}", deleted, createdBefore))
+            .onErrorResume(
+                Exception.class,
+                exception -> {
+                    log.warn("Failed to purge the idempotency keys, they will be purged by the next run", exception);
+                    return Mono.just(0);
+                }
+            );
+    }
+}
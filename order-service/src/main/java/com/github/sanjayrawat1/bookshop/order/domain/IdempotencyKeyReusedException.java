@@ -0,0 +1,13 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+/**
+ * Exception thrown when an idempotency key already used for an order is sent again with a different order.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("The idempotency key " + idempotencyKey + " was already used for a different order.");
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import java.time.Instant;
+import java.util.List;
+import reactor.core.publisher.Flux;
+
+/**
+ * Order Repository fragment inserting the orders of a batch.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public interface OrderBatchRepository {
+    /**
+     * Inserts several orders with a single statement, one for each element of the given list. The columns are bound as arrays,
+     * so the statement is the same regardless of how many orders are inserted. The audit metadata and the initial version
+     * are set the same way Spring Data R2DBC does when saving a new order.
+     *
+     * @return the inserted orders, each with the position in the list of the order it was inserted for.
+     */
+    Flux<InsertedOrder> insertAll(List<Order> orders, Instant createdDate, String createdBy);
+
+    /**
+     * An order inserted by {@link #insertAll}, with the position, starting from 0, of the order it was inserted for.
+     */
+    record InsertedOrder(int position, Order order) {}
+}
@@ -0,0 +1,51 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import java.time.Instant;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+
+/**
+ * Inserts the orders of a batch with a statement that returns, along with each inserted row, the ordinality of the line of the
+ * arrays it was inserted from. The rows returned by an insert can't refer to the rows they were selected from, so the ids are
+ * taken from the sequence for each line first, then the inserted rows are joined back to their line by id.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@RequiredArgsConstructor
+public class OrderBatchRepositoryImpl implements OrderBatchRepository {
+
+    private static final String INSERT_ALL =
+        "with line as (" +
+        "select nextval(pg_get_serial_sequence('orders', 'id')) as id, line.* " +
+        "from unnest(:bookIsbns, :bookNames, :bookPrices, :quantities, :statuses) " +
+        "with ordinality as line(book_isbn, book_name, book_price, quantity, status, ord)" +
+        "), inserted as (" +
+        "insert into orders (id, book_isbn, book_name, book_price, quantity, status, " +
+        "created_date, last_modified_date, created_by, last_modified_by, version) " +
+        "select id, book_isbn, book_name, book_price, quantity, status, :createdDate, :createdDate, :createdBy, :createdBy, 1 from line " +
+        "returning *" +
+        ") " +
+        "select inserted.*, line.ord from inserted join line on line.id = inserted.id";
+
+    private final R2dbcEntityTemplate entityTemplate;
+
+    @Override
+    public Flux<InsertedOrder> insertAll(List<Order> orders, Instant createdDate, String createdBy) {
+        var converter = entityTemplate.getConverter();
+        return entityTemplate
+            .getDatabaseClient()
+            .sql(INSERT_ALL)
+            .bind("bookIsbns", orders.stream().map(Order::bookIsbn).toArray(String[]::new))
+            .bind("bookNames", orders.stream().map(Order::bookName).toArray(String[]::new))
+            .bind("bookPrices", orders.stream().map(Order::bookPrice).toArray(Double[]::new))
+            .bind("quantities", orders.stream().map(Order::quantity).toArray(Integer[]::new))
+            .bind("statuses", orders.stream().map(order -> order.status().name()).toArray(String[]::new))
+            .bind("createdDate", createdDate)
+            .bind("createdBy", createdBy)
+            // the ordinality starts from 1.
+            .map((row, metadata) -> new InsertedOrder(row.get("ord", Long.class).intValue() - 1, converter.read(Order.class, row, metadata)))
+            .all();
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+/**
+ * The order created for a line of a batch, with the position of the line in the batch, starting from 0.
+ * The results of a batch are returned as soon as they are stored, rather than in the order of the lines.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record OrderBatchResult(int index, Order order) {}
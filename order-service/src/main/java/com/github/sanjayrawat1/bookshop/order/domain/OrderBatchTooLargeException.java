@@ -0,0 +1,13 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+/**
+ * Exception thrown when submitting more order lines at once than allowed.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public class OrderBatchTooLargeException extends RuntimeException {
+
+    public OrderBatchTooLargeException(int maxLines) {
+        super("No more than " + maxLines + " orders can be submitted at once.");
+    }
+}
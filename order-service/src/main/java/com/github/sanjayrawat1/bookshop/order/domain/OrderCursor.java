@@ -0,0 +1,15 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import java.time.Instant;
+
+/**
+ * The position of an order in the order history of a user, which is sorted by creation date and then by id, the most recent first.
+ * A page of the history starts right after the cursor of the last order of the previous page.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record OrderCursor(Instant createdDate, long id) {
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.createdDate(), order.id());
+    }
+}
@@ -0,0 +1,8 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+/**
+ * A line of a batch of orders: the book to order, and how many copies.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record OrderLine(String isbn, int quantity) {}
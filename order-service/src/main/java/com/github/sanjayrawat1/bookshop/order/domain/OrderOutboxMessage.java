@@ -0,0 +1,29 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import java.time.Instant;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * An order accepted event waiting in the outbox to be published. It is saved in the same transaction as the order,
+ * so that the event is published if and only if the order is stored.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Table("order_outbox")
+public record OrderOutboxMessage(
+    // spotless:off
+    @Id
+    Long id,
+
+    Long orderId,
+
+    @CreatedDate
+    Instant createdDate
+    // spotless:on
+) {
+    public static OrderOutboxMessage of(Long orderId) {
+        return new OrderOutboxMessage(null, orderId, null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import java.time.Instant;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Order Outbox Repository.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public interface OrderOutboxRepository extends ReactiveCrudRepository<OrderOutboxMessage, Long> {
+    /**
+     * Locks the oldest messages of the outbox until the end of the transaction. The messages already locked by another
+     * instance of the application are skipped, so that each message is relayed by a single instance at a time.
+     */
+    @Query("select * from order_outbox order by id limit :limit for update skip locked")
+    Flux<OrderOutboxMessage> findNextBatch(int limit);
+
+    /**
+     * Saves the order accepted events of several orders with a single statement.
+     */
+    @Modifying
+    @Query("insert into order_outbox (order_id, created_date) select unnest(:orderIds), :createdDate")
+    Mono<Integer> insertAll(Long[] orderIds, Instant createdDate);
+}
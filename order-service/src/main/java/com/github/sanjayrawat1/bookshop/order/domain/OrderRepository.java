@@ -1,13 +1,80 @@
 package com.github.sanjayrawat1.bookshop.order.domain;
 
+import java.time.Instant;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Order Repository.
  *
  * @author Sanjay Singh Rawat
  */
-public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
+public interface OrderRepository extends ReactiveCrudRepository<Order, Long>, OrderBatchRepository {
+    /**
+     * Streams the whole order history of a user, the most recent orders first.
+     */
+    @Query("select * from orders where created_by = :userId order by created_date desc, id desc")
     Flux<Order> findAllByCreatedBy(String userId);
+
+    /**
+     * Returns the first page of the order history of a user, the most recent orders first.
+     */
+    @Query("select * from orders where created_by = :userId order by created_date desc, id desc limit :limit")
+    Flux<Order> findFirstPageByCreatedBy(String userId, int limit);
+
+    /**
+     * Returns the page of the order history of a user following the given cursor. The row comparison is served by the
+     * (created_by, created_date, id) index, so a page costs the same however deep it is in the history.
+     */
+    @Query(
+        "select * from orders where created_by = :userId and (created_date, id) < (:createdDate, :id) " +
+        "order by created_date desc, id desc limit :limit"
+    )
+    Flux<Order> findPageByCreatedByBefore(String userId, Instant createdDate, long id, int limit);
+
+    /**
+     * Marks the given orders as dispatched with a single statement, skipping the ones already dispatched.
+     *
+     * @return the orders that have just been dispatched.
+     */
+    @Query(
+        "update orders set status = 'DISPATCHED', version = version + 1, last_modified_date = :lastModifiedDate " +
+        "where id = any(:ids) and status <> 'DISPATCHED' returning *"
+    )
+    Flux<Order> updateStatusToDispatched(Long[] ids, Instant lastModifiedDate);
+
+    /**
+     * Returns the order submitted by a user with the given idempotency key, if any.
+     */
+    @Query(
+        "select o.* from orders o join order_idempotency_key k on k.order_id = o.id " +
+        "where k.created_by = :userId and k.idempotency_key = :idempotencyKey"
+    )
+    Mono<Order> findByIdempotencyKey(String userId, String idempotencyKey);
+
+    /**
+     * Records the idempotency key of an order. It fails with a duplicate key error if the user already sent the same key,
+     * even in a transaction that is not committed yet, in which case the statement waits for that transaction to end.
+     */
+    @Modifying
+    @Query(
+        "insert into order_idempotency_key (created_by, idempotency_key, order_id, created_date) " +
+        "values (:userId, :idempotencyKey, :orderId, :createdDate)"
+    )
+    Mono<Integer> saveIdempotencyKey(String userId, String idempotencyKey, long orderId, Instant createdDate);
+
+    /**
+     * Deletes at most limit idempotency keys created before the given date, served by the index on their created date.
+     *
+     * @return the number of keys deleted.
+     */
+    @Modifying
+    @Query(
+        "delete from order_idempotency_key where (created_by, idempotency_key) in " +
+        "(select created_by, idempotency_key from order_idempotency_key where created_date < :createdBefore limit :limit)"
+    )
+    Mono<Integer> deleteIdempotencyKeysCreatedBefore(Instant createdBefore, int limit);
 }
@@ -2,13 +2,25 @@ package com.github.sanjayrawat1.bookshop.order.domain;
 
 import com.github.sanjayrawat1.bookshop.order.book.Book;
 import com.github.sanjayrawat1.bookshop.order.book.BookClient;
-import com.github.sanjayrawat1.bookshop.order.event.OrderAcceptedMessage;
-import com.github.sanjayrawat1.bookshop.order.event.OrderDispatchedMessage;
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -26,20 +38,145 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
 
-    private final StreamBridge streamBridge;
+    private final OrderOutboxRepository orderOutboxRepository;
 
+    private final BookshopProperties bookshopProperties;
+
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * The submissions currently in progress with an idempotency key, shared by the duplicates of each submission.
+     */
+    private final Map<String, Mono<Order>> inFlightSubmissions = new ConcurrentHashMap<>();
+
+    /**
+     * Streams the whole order history of a user, the most recent orders first, as fast as the client reads it.
+     */
     public Flux<Order> getAllOrders(String userId) {
         return orderRepository.findAllByCreatedBy(userId);
     }
 
-    @Transactional
+    /**
+     * Returns a page of the order history of a user, the most recent orders first.
+     *
+     * @param userId the user who created the orders.
+     * @param after the cursor of the last order of the previous page, or null for the first page.
+     * @param limit the requested page size, or null to use the default one. It's capped to the configured maximum.
+     * @return the page of orders, telling whether there is a next one.
+     */
+    public Mono<Slice<Order>> getOrderHistory(String userId, OrderCursor after, Integer limit) {
+        var pagination = bookshopProperties.getPagination();
+        int pageSize = Math.min(limit == null || limit < 1 ? pagination.getDefaultLimit() : limit, pagination.getMaxLimit());
+        // fetches one extra row to know whether there is a next page without running a count query.
+        var orders = after == null
+            ? orderRepository.findFirstPageByCreatedBy(userId, pageSize + 1)
+            : orderRepository.findPageByCreatedByBefore(userId, after.createdDate(), after.id(), pageSize + 1);
+        return orders
+            .collectList()
+            .map(page -> {
+                boolean hasNext = page.size() > pageSize;
+                return new SliceImpl<>(hasNext ? page.subList(0, pageSize) : page, PageRequest.ofSize(pageSize), hasNext);
+            });
+    }
+
+    /**
+     * Saves the order, and the order accepted event in the outbox within the same transaction. The event is then published
+     * by {@link com.github.sanjayrawat1.bookshop.order.event.OrderOutboxRelay}, so that the submission doesn't wait for RabbitMQ,
+     * and isn't lost when RabbitMQ cannot be reached. The book is looked up before the transaction begins, so that the transaction
+     * doesn't hold a connection of the pool while waiting for Book Service.
+     */
     public Mono<Order> submitOrder(String isbn, int quantity) {
-        return bookClient
-            .getBookByIsbn(isbn)
-            .map(book -> buildAcceptedOrder(book, quantity))
-            .defaultIfEmpty(buildRejectedOrder(isbn, quantity))
-            .flatMap(orderRepository::save)
-            .doOnNext(this::publishOrderAcceptedEvent);
+        return buildOrder(isbn, quantity).flatMap(order -> saveOrder(order).as(transactionalOperator::transactional));
+    }
+
+    /**
+     * Submits an order at most once for each idempotency key of a user, so that the retries of a submission, by the gateway or by
+     * a user clicking twice, return the order created the first time instead of creating a new one.
+     * <p>
+     * The duplicates arriving while the submission is in progress share it, without looking up the book or saving anything.
+     * Across instances, the idempotency key is saved in the same transaction as the order, and the transaction of the duplicate
+     * fails on the primary key of the idempotency keys, so that its order is rolled back and the first one is returned instead.
+     *
+     * @throws IdempotencyKeyReusedException if the idempotency key was already used for an order of another book or quantity.
+     */
+    public Mono<Order> submitOrder(String isbn, int quantity, String userId, String idempotencyKey) {
+        return Mono.defer(() -> {
+            var submissionKey = userId + "/" + idempotencyKey;
+            var inFlightSubmission = inFlightSubmissions.get(submissionKey);
+            if (inFlightSubmission == null) {
+                var newSubmission = findSubmittedOrder(isbn, quantity, userId, idempotencyKey)
+                    .switchIfEmpty(
+                        Mono.defer(() ->
+                            buildOrder(isbn, quantity)
+                                .flatMap(order ->
+                                    saveOrder(order)
+                                        .flatMap(savedOrder ->
+                                            orderRepository.saveIdempotencyKey(userId, idempotencyKey, savedOrder.id(), Instant.now()).thenReturn(savedOrder)
+                                        )
+                                        .as(transactionalOperator::transactional)
+                                )
+                                .onErrorResume(DataIntegrityViolationException.class, exception -> findSubmittedOrder(isbn, quantity, userId, idempotencyKey))
+                        )
+                    )
+                    // removed before the result is passed on, otherwise a duplicate arriving right after it would still join this one,
+                    // and replay its error instead of trying again.
+                    .doOnTerminate(() -> inFlightSubmissions.remove(submissionKey))
+                    .cache();
+                inFlightSubmission = inFlightSubmissions.putIfAbsent(submissionKey, newSubmission);
+                if (inFlightSubmission == null) {
+                    return newSubmission;
+                }
+            }
+            log.info("Order with idempotency key {} already in progress", idempotencyKey);
+            return inFlightSubmission;
+        });
+    }
+
+    /**
+     * Submits a batch of orders, e.g. the lines of a cart sent by a partner. Each book is looked up once, however many lines order it,
+     * and several books are looked up at the same time. The orders are then inserted by chunks, each chunk with a single statement
+     * along with the order accepted events of its orders, and returned as soon as their chunk is committed.
+     *
+     * @param lines the lines of the batch.
+     * @param userId the user submitting the batch, recorded as the creator of the orders.
+     * @return the order created for each line, in the order they are stored.
+     * @throws OrderBatchTooLargeException if the batch has more lines than allowed.
+     */
+    public Flux<OrderBatchResult> submitOrders(List<OrderLine> lines, String userId) {
+        var batch = bookshopProperties.getBatch();
+        if (lines.size() > batch.getMaxLines()) {
+            return Flux.error(new OrderBatchTooLargeException(batch.getMaxLines()));
+        }
+        var indexesByIsbn = new LinkedHashMap<String, List<Integer>>();
+        for (int index = 0; index < lines.size(); index++) {
+            indexesByIsbn.computeIfAbsent(lines.get(index).isbn(), isbn -> new ArrayList<>()).add(index);
+        }
+        return Flux
+            .fromIterable(indexesByIsbn.entrySet())
+            .flatMap(
+                lineIndexes ->
+                    bookClient
+                        .getBookByIsbn(lineIndexes.getKey())
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMapIterable(book ->
+                            lineIndexes
+                                .getValue()
+                                .stream()
+                                .map(index -> {
+                                    var line = lines.get(index);
+                                    var order = book.isPresent()
+                                        ? buildAcceptedOrder(book.get(), line.quantity())
+                                        : buildRejectedOrder(line.isbn(), line.quantity());
+                                    return new OrderBatchResult(index, order);
+                                })
+                                .toList()
+                        ),
+                batch.getLookupConcurrency()
+            )
+            .buffer(batch.getChunkSize())
+            // inserts one chunk at a time, so that a large batch doesn't take all the connections of the pool.
+            .concatMap(chunk -> insertOrders(chunk, userId));
     }
 
     public static Order buildRejectedOrder(String bookIsbn, int quantity) {
@@ -51,48 +188,75 @@ public class OrderService {
     }
 
     /**
-     * The code we implemented updates the status of the specific order to be DISPATCHED, an operation that can be executed several times
-     * with the same result. Since the operation is idempotent, the code is resilient to duplicates. A further optimization would be to
-     * check for the status and skip the update operation if it's already dispatched.
+     * Marks the orders of a batch of order dispatched events as DISPATCHED, with a single round trip to the database.
+     * The update is idempotent: an order that is already dispatched is left untouched and isn't returned, so that
+     * the events delivered more than once, e.g. when the backlog is replayed after an outage, are harmless.
      *
-     * @param orderDispatchedMessage the order dispatched event payload.
-     * @return the DISPATCHED order.
+     * @param orderIds the ids of the orders dispatched.
+     * @return the orders that have just been DISPATCHED.
      */
-    public Flux<Order> consumeOrderDispatchedMessageEvent(Flux<OrderDispatchedMessage> orderDispatchedMessage) {
-        // Accepts a reactive stream of OrderDispatchedMessage objects as input.
-        return orderDispatchedMessage
-            // For each object emitted to the stream, it reads the related order from the database.
-            .flatMap(message -> orderRepository.findById(message.orderId()))
-            // Updates the order with the “dispatched” status.
-            .map(this::buildDispatchedOrder)
-            // Saves the updated order in the database.
-            .flatMap(orderRepository::save);
+    @Transactional
+    public Flux<Order> dispatchOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return orderRepository.updateStatusToDispatched(orderIds.toArray(Long[]::new), Instant.now());
+    }
+
+    /**
+     * Looks up the book, outside any transaction, and builds the order accepted when the book exists, rejected otherwise.
+     */
+    private Mono<Order> buildOrder(String isbn, int quantity) {
+        return bookClient
+            .getBookByIsbn(isbn)
+            .map(book -> buildAcceptedOrder(book, quantity))
+            .defaultIfEmpty(buildRejectedOrder(isbn, quantity));
+    }
+
+    private Mono<Order> saveOrder(Order order) {
+        return orderRepository.save(order).flatMap(this::saveOrderAcceptedEvent);
+    }
+
+    private Flux<OrderBatchResult> insertOrders(List<OrderBatchResult> chunk, String userId) {
+        var orders = chunk.stream().map(OrderBatchResult::order).toList();
+        var now = Instant.now();
+        return orderRepository
+            .insertAll(orders, now, userId)
+            .collectList()
+            .flatMap(insertedOrders -> {
+                var acceptedOrderIds = insertedOrders
+                    .stream()
+                    .map(OrderBatchRepository.InsertedOrder::order)
+                    .filter(order -> order.status() == OrderStatus.ACCEPTED)
+                    .map(Order::id)
+                    .toArray(Long[]::new);
+                var outbox = acceptedOrderIds.length > 0 ? orderOutboxRepository.insertAll(acceptedOrderIds, now).then() : Mono.<Void>empty();
+                return outbox.thenReturn(insertedOrders);
+            })
+            .as(transactionalOperator::transactional)
+            .flatMapIterable(Function.identity())
+            // each inserted order tells the position in the chunk of the line it was inserted for.
+            .map(insertedOrder -> new OrderBatchResult(chunk.get(insertedOrder.position()).index(), insertedOrder.order()));
     }
 
-    private Order buildDispatchedOrder(Order existingOrder) {
-        return new Order(
-            existingOrder.id(),
-            existingOrder.bookIsbn(),
-            existingOrder.bookName(),
-            existingOrder.bookPrice(),
-            existingOrder.quantity(),
-            OrderStatus.DISPATCHED,
-            existingOrder.createdDate(),
-            existingOrder.lastModifiedDate(),
-            existingOrder.createdBy(),
-            existingOrder.lastModifiedBy(),
-            existingOrder.version()
-        );
+    private Mono<Order> findSubmittedOrder(String isbn, int quantity, String userId, String idempotencyKey) {
+        return orderRepository
+            .findByIdempotencyKey(userId, idempotencyKey)
+            .handle((order, sink) -> {
+                if (!order.bookIsbn().equals(isbn) || order.quantity() != quantity) {
+                    sink.error(new IdempotencyKeyReusedException(idempotencyKey));
+                    return;
+                }
+                log.info("Order with idempotency key {} already submitted with id {}", idempotencyKey, order.id());
+                sink.next(order);
+            });
     }
 
-    private void publishOrderAcceptedEvent(Order order) {
+    private Mono<Order> saveOrderAcceptedEvent(Order order) {
         if (!order.status().equals(OrderStatus.ACCEPTED)) {
-            return;
+            return Mono.just(order);
         }
-        var orderAcceptedMessage = new OrderAcceptedMessage(order.id());
-        log.info("Sending order accepted event with id {}", order.id());
-        // explicitly sends a message to the acceptOrder-out-0 binding
-        var result = streamBridge.send("acceptOrder-out-0", orderAcceptedMessage);
-        log.info("Result of sending data for order with id {} : {}", order.id(), result);
+        log.info("Saving order accepted event with id {} in the outbox", order.id());
+        return orderOutboxRepository.save(OrderOutboxMessage.of(order.id())).thenReturn(order);
     }
 }
@@ -0,0 +1,105 @@
+package com.github.sanjayrawat1.bookshop.order.event;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * Counts the order dispatched events received by the dispatchOrder function and not settled yet, and drains them on shutdown.
+ * <p>
+ * It's stopped before the dispatchOrder-in-0 binding, so that the events still being applied are given the shutdown phase
+ * (spring.lifecycle.timeout-per-shutdown-phase) to be committed and acknowledged, while the channel is still open. The events
+ * received meanwhile are not admitted and left unacknowledged, so that RabbitMQ stops delivering once the prefetch is reached,
+ * rather than returning them to the queue only to get them again. They are redelivered, possibly to another instance, once the
+ * binding is stopped and its channel closed. The binding itself can't be paused instead, since the RabbitMQ binder doesn't
+ * support it, and stopping it closes the channel the events in-flight are acknowledged on.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+@Component
+public class InFlightDispatches implements SmartLifecycle {
+
+    /**
+     * Stops before the input bindings, whose phase is Integer.MAX_VALUE - 1000.
+     */
+    private static final int PHASE = Integer.MAX_VALUE - 500;
+
+    private static final Duration DRAIN_POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile boolean running;
+
+    public InFlightDispatches(MeterRegistry meterRegistry) {
+        Gauge
+            .builder("bookshop.dispatch.in-flight", inFlight, AtomicInteger::get)
+            .description("Order dispatched events received and not settled yet")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Tells whether an event just received can be applied, and counts it as in-flight if so. Once draining, no event is admitted.
+     */
+    public boolean admit() {
+        if (!running) {
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Counts the given number of events as settled, whether acknowledged or rejected.
+     */
+    public void settled(int count) {
+        inFlight.addAndGet(-count);
+    }
+
+    public int count() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Stops admitting events, and signals the shutdown can go on once the events in-flight are settled. The lifecycle processor
+     * goes on anyway after the shutdown phase timeout, and the events left unacknowledged are then redelivered by RabbitMQ.
+     */
+    @Override
+    public void stop(Runnable callback) {
+        running = false;
+        log.info("Draining {} order dispatched events in-flight", inFlight.get());
+        Flux
+            .interval(Duration.ZERO, DRAIN_POLL_INTERVAL)
+            .filter(tick -> inFlight.get() <= 0)
+            .next()
+            .subscribe(tick -> {
+                log.info("The order dispatched events in-flight are drained");
+                callback.run();
+            });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
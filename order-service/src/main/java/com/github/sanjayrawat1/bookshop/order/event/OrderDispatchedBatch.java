@@ -0,0 +1,10 @@
+package com.github.sanjayrawat1.bookshop.order.event;
+
+import java.util.List;
+
+/**
+ * DTO representing the event about a batch of orders being dispatched, received as a single message.
+ *
+ * @author Sanjay Singh Rawat
+ */
+public record OrderDispatchedBatch(List<Long> orderIds) implements OrderDispatchedEvent {}
@@ -0,0 +1,20 @@
+package com.github.sanjayrawat1.bookshop.order.event;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import java.util.List;
+
+/**
+ * The event about orders being dispatched, received either for a single order or for a batch of orders. The form of the event
+ * is deduced from its fields, since Dispatcher Service publishes both without any type information.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.DEDUCTION)
+@JsonSubTypes({ @JsonSubTypes.Type(OrderDispatchedMessage.class), @JsonSubTypes.Type(OrderDispatchedBatch.class) })
+public sealed interface OrderDispatchedEvent permits OrderDispatchedMessage, OrderDispatchedBatch {
+    /**
+     * The ids of the orders dispatched.
+     */
+    List<Long> orderIds();
+}
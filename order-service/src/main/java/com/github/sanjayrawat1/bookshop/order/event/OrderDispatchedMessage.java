@@ -1,8 +1,15 @@
 package com.github.sanjayrawat1.bookshop.order.event;
 
+import java.util.List;
+
 /**
  * DTO representing the event about orders being dispatched.
  *
  * @author Sanjay Singh Rawat
  */
-public record OrderDispatchedMessage(Long orderId) {}
+public record OrderDispatchedMessage(Long orderId) implements OrderDispatchedEvent {
+    @Override
+    public List<Long> orderIds() {
+        return List.of(orderId);
+    }
+}
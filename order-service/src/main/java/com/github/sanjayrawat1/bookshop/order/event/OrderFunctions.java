@@ -1,11 +1,24 @@
 package com.github.sanjayrawat1.bookshop.order.event;
 
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
 import com.github.sanjayrawat1.bookshop.order.domain.OrderService;
+import com.github.sanjayrawat1.bookshop.redelivery.RedeliveryQueues;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 /**
  * @author Sanjay Singh Rawat
@@ -14,15 +27,132 @@ import reactor.core.publisher.Flux;
 @Configuration
 public class OrderFunctions {
 
+    /**
+     * Applies the order dispatched events in batches, each batch with a single update statement. The events are acknowledged
+     * (the binding is configured with the manual acknowledge mode) only once their batch is committed.
+     * <p>
+     * A few batches are applied at the same time, so that a backlog replayed after an outage neither floods the database nor waits
+     * for each batch in turn. A failed batch is retried with backoff, then its events are applied one at a time, so that a single
+     * poison event doesn't fail the others with it, and the events failing on their own are rejected to the dead letter queue.
+     * They are redelivered from there with growing delays, and parked once all their redeliveries failed, so that no event is lost
+     * when the database cannot be reached. No failure reaches the stream itself, which would stop applying any event until restart.
+     * <p>
+     * Dispatcher Service publishes an event either for each order or for a batch of orders, when its batching is enabled. Both forms
+     * are accepted, so that the batching can be switched on and off without any downtime.
+     */
     @Bean
-    public Consumer<Flux<OrderDispatchedMessage>> dispatchOrder(OrderService orderService) {
-        return orderDispatchedMessage ->
-            // For each dispatched message, it updates the related order in the database.
-            orderService
-                .consumeOrderDispatchedMessageEvent(orderDispatchedMessage)
-                // For each order updated in the database, it logs a message.
-                .doOnNext(order -> log.info("The order with id {} is dispatched", order.id()))
+    public Consumer<Flux<Message<OrderDispatchedEvent>>> dispatchOrder(
+        OrderService orderService,
+        BookshopProperties bookshopProperties,
+        InFlightDispatches inFlightDispatches
+    ) {
+        var dispatch = bookshopProperties.getDispatch();
+        var retry = Retry.backoff(dispatch.getRetryMaxAttempts(), dispatch.getRetryBackoff());
+        return orderDispatchedMessages ->
+            orderDispatchedMessages
+                // Once shutting down, the events received are left unacknowledged, and redelivered once the channel is closed.
+                .filter(message -> inFlightDispatches.admit())
+                // Groups the messages by batch size, or by time window when they are not coming fast enough.
+                .bufferTimeout(dispatch.getBatchSize(), dispatch.getBatchWindow())
+                .flatMap(
+                    messages -> dispatchBatch(orderService, messages, retry).doFinally(signal -> inFlightDispatches.settled(messages.size())),
+                    dispatch.getConcurrency()
+                )
                 // Subscribes to the reactive stream in order to activate it. Without a subscriber, no data flows through the stream.
-                .subscribe();
+                .subscribe(null, error -> log.error("The order dispatched events are not applied anymore", error));
+    }
+
+    /**
+     * Exposes the number of order dispatched events waiting in the queue, which tells how far behind the dispatchOrder function is.
+     */
+    @Bean
+    public MeterBinder dispatchOrderLag(RabbitOperations rabbitOperations, RedeliveryQueues redeliveryQueues) {
+        return meterRegistry ->
+            Gauge
+                .builder("bookshop.dispatch.lag", () -> queueDepth(rabbitOperations, redeliveryQueues.queue()))
+                .description("Order dispatched events waiting in the queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rejects right away the events which couldn't be converted (they are handed over as is), then applies the others together.
+     */
+    private static Mono<Void> dispatchBatch(OrderService orderService, List<Message<OrderDispatchedEvent>> messages, Retry retry) {
+        var messagesByReadable = messages
+            .stream()
+            .collect(Collectors.partitioningBy(message -> ((Message<?>) message).getPayload() instanceof OrderDispatchedEvent));
+        var unreadableMessages = messagesByReadable.get(false);
+        if (!unreadableMessages.isEmpty()) {
+            log.error("{} order dispatched events can't be read, they are dead lettered", unreadableMessages.size());
+            settle(unreadableMessages, Outcome.FAILED);
+        }
+        var readableMessages = messagesByReadable.get(true);
+        if (readableMessages.isEmpty()) {
+            return Mono.empty();
+        }
+        return dispatchOrders(orderService, readableMessages)
+            .retryWhen(retry)
+            .onErrorResume(exception -> {
+                log.warn("Failed to dispatch a batch of {} events, they are applied one at a time", readableMessages.size(), exception);
+                return Flux
+                    .fromIterable(readableMessages)
+                    .concatMap(message ->
+                        dispatchOrders(orderService, List.of(message))
+                            .onErrorResume(messageException -> {
+                                log.error("Failed to dispatch the event {}, it's dead lettered", message.getHeaders().getId(), messageException);
+                                settle(List.of(message), Outcome.FAILED);
+                                return Mono.empty();
+                            })
+                    )
+                    .then();
+            });
+    }
+
+    /**
+     * Applies the events with a single update statement, then acknowledges them.
+     */
+    private static Mono<Void> dispatchOrders(OrderService orderService, List<Message<OrderDispatchedEvent>> messages) {
+        return Flux
+            .defer(() -> orderService.dispatchOrders(messages.stream().flatMap(message -> message.getPayload().orderIds().stream()).toList()))
+            // For each order updated in the database, it logs a message.
+            .doOnNext(order -> log.info("The order with id {} is dispatched", order.id()))
+            .then(Mono.fromRunnable(() -> settle(messages, Outcome.DISPATCHED)));
+    }
+
+    /**
+     * Acknowledges the messages of a batch once it is committed, or rejects them to the dead letter queue when they failed. The
+     * messages received without a channel, e.g. from the test binder, are left alone.
+     */
+    private static void settle(List<Message<OrderDispatchedEvent>> messages, Outcome outcome) {
+        for (var message : messages) {
+            var channel = message.getHeaders().get(AmqpHeaders.CHANNEL, Channel.class);
+            var deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+            if (channel == null || deliveryTag == null) {
+                continue;
+            }
+            try {
+                switch (outcome) {
+                    case DISPATCHED -> channel.basicAck(deliveryTag, false);
+                    case FAILED -> channel.basicNack(deliveryTag, false, false);
+                }
+            } catch (IOException | RuntimeException exception) {
+                // the message is redelivered by RabbitMQ once the channel is closed.
+                log.warn("Failed to settle the order dispatched event {}", message.getHeaders().getId(), exception);
+            }
+        }
+    }
+
+    private static double queueDepth(RabbitOperations rabbitOperations, String queue) {
+        try {
+            Long messageCount = rabbitOperations.execute(channel -> channel.messageCount(queue));
+            return messageCount != null ? messageCount : Double.NaN;
+        } catch (RuntimeException exception) {
+            return Double.NaN;
+        }
+    }
+
+    private enum Outcome {
+        DISPATCHED,
+        FAILED,
     }
 }
@@ -0,0 +1,127 @@
+package com.github.sanjayrawat1.bookshop.order.event;
+
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderOutboxMessage;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.TimeoutException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.stream.function.StreamOperations;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Publishes the order accepted events saved in the outbox by {@link com.github.sanjayrawat1.bookshop.order.domain.OrderService}.
+ * <p>
+ * The outbox is polled in the background: each batch of events is sent to the acceptOrder-out-0 binding, and the events confirmed
+ * by RabbitMQ are deleted in the same transaction that locked them. The events that are not confirmed stay in the outbox and are
+ * published again by the next poll, so that an event can be delivered more than once, but never lost.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderOutboxRelay {
+
+    private static final String ACCEPT_ORDER_BINDING = "acceptOrder-out-0";
+
+    private final OrderOutboxRepository orderOutboxRepository;
+
+    private final StreamOperations streamBridge;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final BookshopProperties bookshopProperties;
+
+    private Disposable polling;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        polling =
+            Flux
+                .interval(bookshopProperties.getOutbox().getPollInterval())
+                // a poll that lasts longer than the interval makes the next ticks be dropped, instead of piling up.
+                .onBackpressureDrop()
+                .concatMap(tick -> relayPendingEvents(), 0)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (polling != null) {
+            polling.dispose();
+        }
+    }
+
+    /**
+     * Relays the events in the outbox batch after batch, until a batch isn't full.
+     *
+     * @return the number of events published.
+     */
+    public Mono<Integer> relayPendingEvents() {
+        int batchSize = bookshopProperties.getOutbox().getBatchSize();
+        return relayBatch(batchSize)
+            .expand(published -> published == batchSize ? relayBatch(batchSize) : Mono.empty())
+            .reduce(0, Integer::sum)
+            .onErrorResume(
+                Exception.class,
+                exception -> {
+                    log.warn("Failed to relay the order accepted events, they will be published again by the next poll", exception);
+                    return Mono.just(0);
+                }
+            );
+    }
+
+    private Mono<Integer> relayBatch(int batchSize) {
+        return orderOutboxRepository
+            .findNextBatch(batchSize)
+            // sending is blocking, and the confirms of the whole batch are awaited at once rather than one event after the other.
+            .publishOn(Schedulers.boundedElastic())
+            .map(this::send)
+            .flatMap(Mono::from)
+            .collectList()
+            .flatMap(publishedIds -> orderOutboxRepository.deleteAllById(publishedIds).thenReturn(publishedIds.size()))
+            .doOnNext(published -> log.debug("Published {} order accepted events from the outbox", published))
+            .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Sends the event, and returns its id once it is published, or an empty Mono if RabbitMQ didn't confirm it.
+     */
+    private Mono<Long> send(OrderOutboxMessage outboxMessage) {
+        var outbox = bookshopProperties.getOutbox();
+        var message = MessageBuilder.withPayload(new OrderAcceptedMessage(outboxMessage.orderId()));
+        var correlationData = new CorrelationData(String.valueOf(outboxMessage.id()));
+        if (outbox.isPublisherConfirms()) {
+            message.setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlationData);
+        }
+        if (!streamBridge.send(ACCEPT_ORDER_BINDING, message.build())) {
+            return Mono.empty();
+        }
+        if (!outbox.isPublisherConfirms()) {
+            return Mono.just(outboxMessage.id());
+        }
+        return Mono
+            .fromFuture(correlationData.getFuture())
+            .timeout(outbox.getConfirmTimeout())
+            .flatMap(confirm -> {
+                if (!confirm.isAck()) {
+                    log.warn("Order accepted event with id {} not confirmed: {}", outboxMessage.orderId(), confirm.getReason());
+                    return Mono.empty();
+                }
+                return Mono.just(outboxMessage.id());
+            })
+            .onErrorResume(TimeoutException.class, exception -> Mono.empty());
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.sanjayrawat1.bookshop.order.web.errors;
+
+import com.github.sanjayrawat1.bookshop.order.domain.IdempotencyKeyReusedException;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderBatchTooLargeException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+
+/**
+ * Controller advice to translate the server side exceptions to client-friendly json structures.
+ * The error response follows RFC7807 - Problem Details for HTTP APIs (<a href="https://tools.ietf.org/html/rfc7807">RFC7807</a>).
+ *
+ * @author Sanjay Singh Rawat
+ */
+@ControllerAdvice
+public class ExceptionTranslator extends ResponseEntityExceptionHandler {
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ProblemDetail idempotencyKeyReusedHandler(IdempotencyKeyReusedException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+    }
+
+    @ExceptionHandler(OrderBatchTooLargeException.class)
+    public ProblemDetail orderBatchTooLargeHandler(OrderBatchTooLargeException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.sanjayrawat1.bookshop.order.web.rest;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+public record OrderBatchRequest(
+    // spotless:off
+
+    @NotEmpty(message = "The batch must have at least one order.")
+    List<@Valid OrderRequest> orders
+    // spotless:on
+) {}
@@ -1,17 +1,30 @@
 package com.github.sanjayrawat1.bookshop.order.web.rest;
 
 import com.github.sanjayrawat1.bookshop.order.domain.Order;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderBatchResult;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderCursor;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderLine;
 import com.github.sanjayrawat1.bookshop.order.domain.OrderService;
 import jakarta.validation.Valid;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -26,17 +39,83 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final OrderService orderService;
 
+    /**
+     * Returns a page of the orders of the user, the most recent first. The body is the list of orders in the page, while the cursor
+     * to the next page, if any, is advertised in a Link header (RFC 8288) so that clients simply follow it until it's missing.
+     */
     @GetMapping
-    public Flux<Order> getAllOrders(@AuthenticationPrincipal Jwt jwt) {
-        log.info("Fetching all orders of user {}", jwt.getSubject());
+    public Mono<ResponseEntity<List<Order>>> getAllOrders(
+        @AuthenticationPrincipal Jwt jwt,
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) Integer limit,
+        ServerHttpRequest request
+    ) {
+        log.info("Fetching the page of orders of user {} after {}", jwt.getSubject(), after);
+        var cursor = after != null ? OrderCursors.decode(after) : null;
+        return orderService
+            .getOrderHistory(jwt.getSubject(), cursor, limit)
+            .map(page -> {
+                var headers = new HttpHeaders();
+                if (page.hasNext()) {
+                    var lastOrder = page.getContent().get(page.getNumberOfElements() - 1);
+                    var nextPage = UriComponentsBuilder
+                        .fromHttpRequest(request)
+                        .replaceQueryParam("after", OrderCursors.encode(OrderCursor.of(lastOrder)))
+                        .replaceQueryParam("limit", page.getSize())
+                        .toUriString();
+                    headers.add(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+                }
+                return ResponseEntity.ok().headers(headers).body(page.getContent());
+            });
+    }
+
+    /**
+     * Streams all the orders of the user, the most recent first, as newline delimited JSON. The orders are read from the database
+     * only as fast as the client reads the response, so that a large export doesn't have to fit in memory.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Order> exportOrders(@AuthenticationPrincipal Jwt jwt) {
+        log.info("Streaming all orders of user {}", jwt.getSubject());
         return orderService.getAllOrders(jwt.getSubject());
     }
 
+    /**
+     * Submits an order. When the request has an Idempotency-Key header, the order is submitted only once for that key,
+     * and the same order is returned to the retries of the request sent within the retention of the keys (24 hours by default).
+     */
     @PostMapping
-    public Mono<Order> submitOrder(@RequestBody @Valid OrderRequest orderRequest) {
+    public Mono<Order> submitOrder(
+        @RequestBody @Valid OrderRequest orderRequest,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+        @AuthenticationPrincipal Jwt jwt
+    ) {
         log.info("Order for {} copies of the book with ISBN {}", orderRequest.quantity(), orderRequest.isbn());
-        return orderService.submitOrder(orderRequest.isbn(), orderRequest.quantity());
+        if (idempotencyKey == null) {
+            return orderService.submitOrder(orderRequest.isbn(), orderRequest.quantity());
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST,
+                "The " + IDEMPOTENCY_KEY + " header must have between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters."
+            );
+        }
+        return orderService.submitOrder(orderRequest.isbn(), orderRequest.quantity(), jwt.getSubject(), idempotencyKey);
+    }
+
+    /**
+     * Submits a batch of orders, and streams the order created for each line as newline delimited JSON, as soon as it's stored.
+     * Each result tells the position of its line in the batch, since the results are not returned in the order of the lines.
+     */
+    @PostMapping(path = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OrderBatchResult> submitOrders(@RequestBody @Valid OrderBatchRequest orderBatchRequest, @AuthenticationPrincipal Jwt jwt) {
+        log.info("Batch of {} orders", orderBatchRequest.orders().size());
+        var lines = orderBatchRequest.orders().stream().map(orderRequest -> new OrderLine(orderRequest.isbn(), orderRequest.quantity())).toList();
+        return orderService.submitOrders(lines, jwt.getSubject());
     }
 }
@@ -0,0 +1,32 @@
+package com.github.sanjayrawat1.bookshop.order.web.rest;
+
+import com.github.sanjayrawat1.bookshop.order.domain.OrderCursor;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Encodes the cursors of the order history as opaque URL-safe tokens, so that clients follow them rather than build them.
+ *
+ * @author Sanjay Singh Rawat
+ */
+final class OrderCursors {
+
+    private OrderCursors() {}
+
+    static String encode(OrderCursor cursor) {
+        var token = cursor.createdDate() + "," + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static OrderCursor decode(String token) {
+        try {
+            var parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(",", 2);
+            return new OrderCursor(Instant.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The cursor " + token + " is not valid.", exception);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+CREATE TABLE order_outbox (
+    id BIGSERIAL PRIMARY KEY NOT NULL,
+    order_id BIGINT NOT NULL,
+    created_date TIMESTAMP NOT NULL
+);
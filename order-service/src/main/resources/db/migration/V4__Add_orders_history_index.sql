@@ -0,0 +1,2 @@
+-- serves the order history of a user, most recent first, including the keyset pagination on (created_date, id).
+CREATE INDEX orders_created_by_created_date_id_idx ON orders (created_by, created_date, id);
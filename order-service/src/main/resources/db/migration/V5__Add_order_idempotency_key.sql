@@ -0,0 +1,8 @@
+-- the idempotency keys sent by the clients with their order submissions, so that a retried submission returns the order created the first time.
+CREATE TABLE order_idempotency_key (
+    created_by VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    order_id BIGINT NOT NULL REFERENCES orders (id) ON DELETE CASCADE,
+    created_date TIMESTAMP NOT NULL,
+    PRIMARY KEY (created_by, idempotency_key)
+);
@@ -0,0 +1,2 @@
+-- serves the purge of the idempotency keys older than their retention.
+CREATE INDEX order_idempotency_key_created_date_idx ON order_idempotency_key (created_date);
@@ -1,6 +1,13 @@
 package com.github.sanjayrawat1.bookshop.order.book;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.sanjayrawat1.bookshop.order.config.ClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
@@ -11,6 +18,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -35,11 +43,12 @@ public class BookClientTests {
         this.mockWebServer = new MockWebServer();
         this.mockWebServer.start();
         var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
-        this.bookClient = new BookClient(webClient);
+        this.bookClient = new BookClient(webClient, clientProperties(false), new SimpleMeterRegistry());
     }
 
     @AfterEach
     void cleanup() throws IOException {
+        this.bookClient.close();
         this.mockWebServer.shutdown();
     }
 
@@ -76,4 +85,261 @@ public class BookClientTests {
 
         StepVerifier.create(bookClient.getBookByIsbn(bookIsbn)).expectNextCount(0).verifyComplete();
     }
+
+    @Test
+    void whenConcurrentLookupsThenMergedIntoSingleRequest() throws InterruptedException {
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var batchingBookClient = new BookClient(webClient, clientProperties(true), new SimpleMeterRegistry());
+        var mockResponse = new MockResponse()
+            .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .setBody(
+                """
+                [
+                    { "isbn": "1234567890", "title": "Title", "author": "Author", "price": 9.90 },
+                    { "isbn": "1234567891", "title": "Another Title", "author": "Another Author", "price": 12.90 }
+                ]
+                """
+            );
+        mockWebServer.enqueue(mockResponse);
+
+        var books = Flux.merge(
+            batchingBookClient.getBookByIsbn("1234567890"),
+            batchingBookClient.getBookByIsbn("1234567891"),
+            batchingBookClient.getBookByIsbn("1234567892")
+        );
+
+        StepVerifier.create(books.map(Book::isbn).collectList()).expectNextMatches(isbns -> isbns.size() == 2).verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(mockWebServer.takeRequest().getRequestUrl().queryParameter("isbn").split(","))
+            .containsExactlyInAnyOrder("1234567890", "1234567891", "1234567892");
+        batchingBookClient.close();
+    }
+
+    @Test
+    void whenConcurrentLookupsOfSameBookThenSingleRequestAndReusedAfterwards() {
+        var bookIsbn = "1234567890";
+        var meterRegistry = new SimpleMeterRegistry();
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var coalescingBookClient = new BookClient(webClient, clientProperties(false), meterRegistry);
+        var mockResponse = new MockResponse()
+            .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .setBody(
+                """
+                { "isbn": "%s", "title": "Title", "author": "Author", "price": 9.90 }
+                """.formatted(
+                        bookIsbn
+                    )
+            )
+            .setBodyDelay(100, TimeUnit.MILLISECONDS);
+        mockWebServer.enqueue(mockResponse);
+
+        var books = Flux.merge(coalescingBookClient.getBookByIsbn(bookIsbn), coalescingBookClient.getBookByIsbn(bookIsbn));
+
+        StepVerifier.create(books).expectNextCount(2).verifyComplete();
+        StepVerifier.create(coalescingBookClient.getBookByIsbn(bookIsbn)).expectNextMatches(book -> book.isbn().equals(bookIsbn)).verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("bookshop.catalog.book.lookups").tag("source", "in-flight").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bookshop.catalog.book.lookups").tag("source", "cache").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenKnownBookIsStaleThenRevalidatedWithETag() throws InterruptedException {
+        var bookIsbn = "1234567890";
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var revalidatingBookClient = new BookClient(webClient, clientProperties(false, cache(Duration.ZERO)), new SimpleMeterRegistry());
+        mockWebServer.enqueue(
+            new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .addHeader(HttpHeaders.ETAG, "\"42-3\"")
+                .setBody(
+                    """
+                    { "isbn": "%s", "title": "Title", "author": "Author", "price": 9.90 }
+                    """.formatted(
+                            bookIsbn
+                        )
+                )
+        );
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304).addHeader(HttpHeaders.ETAG, "\"42-3\""));
+
+        StepVerifier.create(revalidatingBookClient.getBookByIsbn(bookIsbn)).expectNextCount(1).verifyComplete();
+        StepVerifier
+            .create(revalidatingBookClient.getBookByIsbn(bookIsbn))
+            .expectNextMatches(book -> book.isbn().equals(bookIsbn) && book.title().equals("Title"))
+            .verifyComplete();
+        assertThat(mockWebServer.takeRequest().getHeader(HttpHeaders.IF_NONE_MATCH)).isNull();
+        assertThat(mockWebServer.takeRequest().getHeader(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"42-3\"");
+    }
+
+    @Test
+    void whenBookFirstFetchedInBatchThenRevalidatedWithETag() throws InterruptedException {
+        var bookIsbn = "1234567890";
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var batchingBookClient = new BookClient(webClient, clientProperties(true, cache(Duration.ZERO)), new SimpleMeterRegistry());
+        mockWebServer.enqueue(
+            new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody(
+                    """
+                    [ { "id": 42, "isbn": "%s", "title": "Title", "author": "Author", "price": 9.90, "version": 3 } ]
+                    """.formatted(
+                            bookIsbn
+                        )
+                )
+        );
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304).addHeader(HttpHeaders.ETAG, "\"42-3\""));
+
+        StepVerifier.create(batchingBookClient.getBookByIsbn(bookIsbn)).expectNextCount(1).verifyComplete();
+        StepVerifier
+            .create(batchingBookClient.getBookByIsbn(bookIsbn))
+            .expectNextMatches(book -> book.isbn().equals(bookIsbn) && book.title().equals("Title"))
+            .verifyComplete();
+        assertThat(mockWebServer.takeRequest().getRequestUrl().queryParameter("isbn")).isEqualTo(bookIsbn);
+        assertThat(mockWebServer.takeRequest().getHeader(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"42-3\"");
+        batchingBookClient.close();
+    }
+
+    @Test
+    void whenRequestSlowerThanUsualThenHedgedAndFirstAnswerWins() throws InterruptedException {
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var meterRegistry = new SimpleMeterRegistry();
+        var hedgingBookClient = new BookClient(webClient, clientProperties(false), meterRegistry);
+        for (int i = 0; i < 20; i++) {
+            mockWebServer.enqueue(bookResponse("123456789" + i));
+            StepVerifier.create(hedgingBookClient.getBookByIsbn("123456789" + i)).expectNextCount(1).verifyComplete();
+        }
+        // lets the timeout and the hedge delay be derived from the latency of the requests above.
+        Thread.sleep(1100);
+        mockWebServer.enqueue(bookResponse("0987654321").setHeadersDelay(2, TimeUnit.SECONDS));
+        mockWebServer.enqueue(bookResponse("0987654321"));
+
+        StepVerifier
+            .create(hedgingBookClient.getBookByIsbn("0987654321"))
+            .expectNextMatches(book -> book.isbn().equals("0987654321"))
+            .expectComplete()
+            .verify(Duration.ofSeconds(1));
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(22);
+        assertThat(meterRegistry.get("bookshop.catalog.request.hedged").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenRetryBudgetExhaustedThenNotRetried() {
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var requests = new ClientProperties.Requests(Duration.ofMillis(250), Duration.ofSeconds(3), 3, false, Duration.ofMillis(10), 0, 1);
+        var meterRegistry = new SimpleMeterRegistry();
+        var budgetedBookClient = new BookClient(webClient, clientProperties(false, cache(Duration.ofMinutes(1)), requests), meterRegistry);
+        for (int i = 0; i < 5; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        StepVerifier.create(budgetedBookClient.getBookByIsbn("1234567890")).verifyComplete();
+        StepVerifier.create(budgetedBookClient.getBookByIsbn("1234567891")).verifyComplete();
+        // the only token of the budget is spent on the first retry, so neither lookup is retried afterwards.
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+        assertThat(meterRegistry.get("bookshop.catalog.request.budget.exhausted").tag("attempt", "retry").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void whenCatalogUnavailableThenKnownBookServedStale() {
+        var bookIsbn = "1234567890";
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var meterRegistry = new SimpleMeterRegistry();
+        var staleBookClient = new BookClient(webClient, clientProperties(false, cache(Duration.ZERO)), meterRegistry);
+        mockWebServer.enqueue(bookResponse(bookIsbn).addHeader(HttpHeaders.ETAG, "\"42-3\""));
+        for (int i = 0; i < 4; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        StepVerifier.create(staleBookClient.getBookByIsbn(bookIsbn)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(staleBookClient.getBookByIsbn(bookIsbn)).expectNextMatches(book -> book.isbn().equals(bookIsbn)).verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(5);
+        assertThat(meterRegistry.get("bookshop.catalog.book.revalidations").tag("result", "failed").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bookshop.catalog.book.staleness").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenCatalogUnavailableAfterGracePeriodThenReturnEmpty() {
+        var bookIsbn = "1234567890";
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var cache = new ClientProperties.Cache(Duration.ZERO, Duration.ofMinutes(10), 100, Duration.ZERO, Duration.ZERO);
+        var staleBookClient = new BookClient(webClient, clientProperties(false, cache), new SimpleMeterRegistry());
+        mockWebServer.enqueue(bookResponse(bookIsbn).addHeader(HttpHeaders.ETAG, "\"42-3\""));
+        for (int i = 0; i < 4; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        StepVerifier.create(staleBookClient.getBookByIsbn(bookIsbn)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(staleBookClient.getBookByIsbn(bookIsbn)).verifyComplete();
+    }
+
+    @Test
+    void whenKnownBookJustExpiredThenServedAndRevalidatedInBackground() throws InterruptedException {
+        var bookIsbn = "1234567890";
+        var webClient = WebClient.builder().baseUrl(mockWebServer.url("/").uri().toString()).build();
+        var meterRegistry = new SimpleMeterRegistry();
+        var cache = new ClientProperties.Cache(Duration.ZERO, Duration.ofMinutes(10), 100, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        var staleBookClient = new BookClient(webClient, clientProperties(false, cache), meterRegistry);
+        mockWebServer.enqueue(bookResponse(bookIsbn).addHeader(HttpHeaders.ETAG, "\"42-3\""));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304).addHeader(HttpHeaders.ETAG, "\"42-3\"").setHeadersDelay(1, TimeUnit.SECONDS));
+
+        StepVerifier.create(staleBookClient.getBookByIsbn(bookIsbn)).expectNextCount(1).verifyComplete();
+        // the stale book is served without waiting for the slow revalidation.
+        StepVerifier
+            .create(staleBookClient.getBookByIsbn(bookIsbn))
+            .expectNextMatches(book -> book.isbn().equals(bookIsbn))
+            .expectComplete()
+            .verify(Duration.ofMillis(500));
+        assertThat(mockWebServer.takeRequest().getHeader(HttpHeaders.IF_NONE_MATCH)).isNull();
+        assertThat(mockWebServer.takeRequest(1, TimeUnit.SECONDS).getHeader(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"42-3\"");
+        assertThat(meterRegistry.get("bookshop.catalog.book.lookups").tag("source", "stale").counter().count()).isEqualTo(1);
+    }
+
+    private static MockResponse bookResponse(String isbn) {
+        return new MockResponse()
+            .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .setBody(
+                """
+                { "isbn": "%s", "title": "Title", "author": "Author", "price": 9.90 }
+                """.formatted(
+                        isbn
+                    )
+            );
+    }
+
+    private static ClientProperties.Cache cache(Duration ttl) {
+        return new ClientProperties.Cache(ttl, Duration.ofMinutes(10), 100, Duration.ZERO, Duration.ofMinutes(10));
+    }
+
+    private static ClientProperties clientProperties(boolean batching) {
+        return clientProperties(batching, cache(Duration.ofMinutes(1)));
+    }
+
+    private static ClientProperties clientProperties(boolean batching, ClientProperties.Cache cache) {
+        return clientProperties(
+            batching,
+            cache,
+            new ClientProperties.Requests(Duration.ofMillis(250), Duration.ofSeconds(3), 3, true, Duration.ofMillis(10), 0.1, 10)
+        );
+    }
+
+    private static ClientProperties clientProperties(boolean batching, ClientProperties.Cache cache, ClientProperties.Requests requests) {
+        return new ClientProperties(
+            URI.create("http://localhost"),
+            new ClientProperties.CatalogClient(
+                new ClientProperties.Batching(batching, Duration.ofMillis(50), 10),
+                cache,
+                new ClientProperties.Connections(
+                    10,
+                    100,
+                    Duration.ofSeconds(1),
+                    Duration.ofSeconds(30),
+                    Duration.ofMinutes(5),
+                    Duration.ofSeconds(30),
+                    Duration.ofSeconds(1),
+                    true,
+                    false
+                ),
+                requests
+            )
+        );
+    }
 }
@@ -0,0 +1,52 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyKeyPurgeTests {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Spy
+    private BookshopProperties bookshopProperties = new BookshopProperties();
+
+    @InjectMocks
+    private IdempotencyKeyPurge idempotencyKeyPurge;
+
+    @Test
+    void whenBatchFullThenNextBatchPurgedUntilOneIsNot() {
+        bookshopProperties.getIdempotency().setPurgeBatchSize(2);
+        when(orderRepository.deleteIdempotencyKeysCreatedBefore(any(Instant.class), eq(2))).thenReturn(Mono.just(2), Mono.just(2), Mono.just(1));
+
+        StepVerifier.create(idempotencyKeyPurge.purgeExpiredKeys()).expectNext(5).verifyComplete();
+        verify(orderRepository, times(3)).deleteIdempotencyKeysCreatedBefore(any(Instant.class), eq(2));
+    }
+
+    @Test
+    void whenPurgeFailsThenNothingPurgedUntilNextRun() {
+        when(orderRepository.deleteIdempotencyKeysCreatedBefore(any(Instant.class), eq(1000)))
+            .thenReturn(Mono.error(new QueryTimeoutException("canceling statement due to statement timeout")));
+
+        StepVerifier.create(idempotencyKeyPurge.purgeExpiredKeys()).expectNext(0).verifyComplete();
+    }
+}
@@ -1,6 +1,11 @@
 package com.github.sanjayrawat1.bookshop.order.domain;
 
+import com.github.sanjayrawat1.bookshop.order.book.Book;
 import com.github.sanjayrawat1.bookshop.order.config.DatabaseConfiguration;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -63,6 +68,82 @@ public class OrderRepositoryR2dbcTests {
         StepVerifier.create(orderRepository.findById(987L)).expectNextCount(0).verifyComplete();
     }
 
+    @Test
+    void updateStatusToDispatchedSkipsOrdersAlreadyDispatched() {
+        var acceptedOrder = orderRepository.save(Order.of("1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED)).block();
+        var dispatchedOrder = orderRepository.save(Order.of("1234567891", "Title - Author", 9.90, 1, OrderStatus.DISPATCHED)).block();
+        var orderIds = new Long[] { acceptedOrder.id(), dispatchedOrder.id(), 987L };
+
+        StepVerifier
+            .create(orderRepository.updateStatusToDispatched(orderIds, Instant.now()))
+            .expectNextMatches(order ->
+                order.id().equals(acceptedOrder.id()) && order.status().equals(OrderStatus.DISPATCHED) && order.version() == acceptedOrder.version() + 1
+            )
+            .verifyComplete();
+        StepVerifier.create(orderRepository.updateStatusToDispatched(orderIds, Instant.now())).expectNextCount(0).verifyComplete();
+    }
+
+    @Test
+    @WithMockUser("sanjay")
+    void findPageByCreatedByBeforeReturnsOlderOrdersMostRecentFirst() {
+        var order1 = orderRepository.save(OrderService.buildRejectedOrder("1234567890", 1)).block();
+        var order2 = orderRepository.save(OrderService.buildRejectedOrder("1234567891", 1)).block();
+        var order3 = orderRepository.save(OrderService.buildRejectedOrder("1234567892", 1)).block();
+
+        StepVerifier
+            .create(orderRepository.findPageByCreatedByBefore("sanjay", order3.createdDate(), order3.id(), 10))
+            .expectNextMatches(order -> order.id().equals(order2.id()))
+            .expectNextMatches(order -> order.id().equals(order1.id()))
+            .verifyComplete();
+        StepVerifier
+            .create(orderRepository.findFirstPageByCreatedBy("sanjay", 1))
+            .expectNextMatches(order -> order.id().equals(order3.id()))
+            .verifyComplete();
+    }
+
+    @Test
+    void deleteIdempotencyKeysCreatedBeforeDeletesOnlyOlderKeysUpToLimit() {
+        var order = orderRepository.save(OrderService.buildRejectedOrder("1234567890", 1)).block();
+        var now = Instant.now();
+        orderRepository.saveIdempotencyKey("sanjay", "old-1", order.id(), now.minus(Duration.ofDays(2))).block();
+        orderRepository.saveIdempotencyKey("sanjay", "old-2", order.id(), now.minus(Duration.ofDays(2))).block();
+        orderRepository.saveIdempotencyKey("sanjay", "recent", order.id(), now).block();
+        var createdBefore = now.minus(Duration.ofDays(1));
+
+        StepVerifier.create(orderRepository.deleteIdempotencyKeysCreatedBefore(createdBefore, 1)).expectNext(1).verifyComplete();
+        StepVerifier.create(orderRepository.deleteIdempotencyKeysCreatedBefore(createdBefore, 10)).expectNext(1).verifyComplete();
+        StepVerifier.create(orderRepository.findByIdempotencyKey("sanjay", "recent")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(orderRepository.findByIdempotencyKey("sanjay", "old-1")).expectNextCount(0).verifyComplete();
+    }
+
+    @Test
+    void insertAllInsertsOrdersWithSingleStatementAndReturnsTheirPositions() {
+        var orders = List.of(
+            OrderService.buildAcceptedOrder(new Book("1234567890", "Title", "Author", 9.90), 1),
+            OrderService.buildRejectedOrder("1234567891", 2)
+        );
+
+        StepVerifier
+            .create(
+                orderRepository
+                    .insertAll(orders, Instant.now(), "sanjay")
+                    .collectSortedList(Comparator.comparingInt(OrderBatchRepository.InsertedOrder::position))
+            )
+            .expectNextMatches(insertedOrders ->
+                insertedOrders.size() == 2 &&
+                insertedOrders.get(0).position() == 0 &&
+                insertedOrders.get(0).order().status() == OrderStatus.ACCEPTED &&
+                insertedOrders.get(0).order().bookName().equals("Title - Author") &&
+                insertedOrders.get(0).order().createdBy().equals("sanjay") &&
+                insertedOrders.get(0).order().version() == 1 &&
+                insertedOrders.get(1).position() == 1 &&
+                insertedOrders.get(1).order().status() == OrderStatus.REJECTED &&
+                insertedOrders.get(1).order().bookIsbn().equals("1234567891") &&
+                insertedOrders.get(1).order().bookName() == null
+            )
+            .verifyComplete();
+    }
+
     @Test
     void whenCreateOrderNotAuthenticatedThenNoAuditMetadata() {
         var rejectedOrder = OrderService.buildRejectedOrder("1234567890", 3);
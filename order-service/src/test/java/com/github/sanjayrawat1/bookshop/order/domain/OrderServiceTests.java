@@ -0,0 +1,207 @@
+package com.github.sanjayrawat1.bookshop.order.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.github.sanjayrawat1.bookshop.order.book.Book;
+import com.github.sanjayrawat1.bookshop.order.book.BookClient;
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class OrderServiceTests {
+
+    @Mock
+    private BookClient bookClient;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderOutboxRepository orderOutboxRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private BookshopProperties bookshopProperties = new BookshopProperties();
+
+    @InjectMocks
+    private OrderService orderService;
+
+    @Test
+    void whenRequestedLimitExceedsMaximumThenCapped() {
+        int maxLimit = bookshopProperties.getPagination().getMaxLimit();
+        when(orderRepository.findFirstPageByCreatedBy("sanjay", maxLimit + 1)).thenReturn(Flux.empty());
+
+        StepVerifier.create(orderService.getOrderHistory("sanjay", null, maxLimit * 10)).expectNextMatches(page -> page.getSize() == maxLimit).verifyComplete();
+
+        verify(orderRepository).findFirstPageByCreatedBy("sanjay", maxLimit + 1);
+    }
+
+    @Test
+    void whenMoreOrdersThanLimitThenHasNextPage() {
+        var cursor = new OrderCursor(Instant.parse("2023-04-01T10:15:30Z"), 21L);
+        var order1 = OrderService.buildRejectedOrder("1234567890", 1);
+        var order2 = OrderService.buildRejectedOrder("1234567891", 1);
+        when(orderRepository.findPageByCreatedByBefore("sanjay", cursor.createdDate(), cursor.id(), 2)).thenReturn(Flux.just(order1, order2));
+
+        StepVerifier
+            .create(orderService.getOrderHistory("sanjay", cursor, 1))
+            .expectNextMatches(page -> page.hasNext() && page.getContent().equals(List.of(order1)))
+            .verifyComplete();
+    }
+
+    @Test
+    void whenIdempotencyKeyAlreadyUsedThenSubmittedOrderReturned() {
+        var submittedOrder = new Order(21L, "1234567890", "Title - Author", 9.90, 2, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1);
+        when(orderRepository.findByIdempotencyKey("sanjay", "key-1")).thenReturn(Mono.just(submittedOrder));
+
+        StepVerifier.create(orderService.submitOrder("1234567890", 2, "sanjay", "key-1")).expectNext(submittedOrder).verifyComplete();
+
+        verifyNoInteractions(bookClient, orderOutboxRepository);
+    }
+
+    @Test
+    void whenIdempotencyKeyUsedForAnotherOrderThenThrows() {
+        var submittedOrder = new Order(21L, "1234567890", "Title - Author", 9.90, 2, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1);
+        when(orderRepository.findByIdempotencyKey("sanjay", "key-1")).thenReturn(Mono.just(submittedOrder));
+
+        StepVerifier
+            .create(orderService.submitOrder("1234567890", 3, "sanjay", "key-1"))
+            .expectErrorSatisfies(error ->
+                assertThat(error)
+                    .isInstanceOf(IdempotencyKeyReusedException.class)
+                    .hasMessage("The idempotency key key-1 was already used for a different order.")
+            )
+            .verify();
+    }
+
+    @Test
+    void whenDuplicatesSubmittedConcurrentlyThenOrderPlacedOnce() {
+        var book = new Book("1234567890", "Title", "Author", 9.90);
+        var placedOrder = new Order(21L, book.isbn(), "Title - Author", 9.90, 2, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1);
+        Sinks.One<Book> bookLookup = Sinks.one();
+        when(orderRepository.findByIdempotencyKey("sanjay", "key-1")).thenReturn(Mono.empty());
+        when(bookClient.getBookByIsbn(book.isbn())).thenReturn(bookLookup.asMono());
+        when(orderRepository.save(any(Order.class))).thenReturn(Mono.just(placedOrder));
+        when(orderOutboxRepository.save(any(OrderOutboxMessage.class))).thenReturn(Mono.just(OrderOutboxMessage.of(placedOrder.id())));
+        when(orderRepository.saveIdempotencyKey(eq("sanjay"), eq("key-1"), eq(21L), any(Instant.class))).thenReturn(Mono.just(1));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var first = orderService.submitOrder(book.isbn(), 2, "sanjay", "key-1").toFuture();
+        var duplicate = orderService.submitOrder(book.isbn(), 2, "sanjay", "key-1").toFuture();
+        bookLookup.tryEmitValue(book);
+
+        assertThat(first).isCompletedWithValue(placedOrder);
+        assertThat(duplicate).isCompletedWithValue(placedOrder);
+        verify(bookClient, times(1)).getBookByIsbn(book.isbn());
+        verify(orderRepository, times(1)).save(any(Order.class));
+    }
+
+    @Test
+    void whenOrderSubmittedThenBookLookedUpBeforeTransactionBegins() {
+        var book = new Book("1234567890", "Title", "Author", 9.90);
+        var placedOrder = new Order(21L, book.isbn(), "Title - Author", 9.90, 2, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1);
+        Sinks.One<Book> bookLookup = Sinks.one();
+        when(orderRepository.findByIdempotencyKey("sanjay", "key-1")).thenReturn(Mono.empty());
+        when(bookClient.getBookByIsbn(book.isbn())).thenReturn(bookLookup.asMono());
+        when(orderRepository.save(any(Order.class))).thenReturn(Mono.just(placedOrder));
+        when(orderOutboxRepository.save(any(OrderOutboxMessage.class))).thenReturn(Mono.just(OrderOutboxMessage.of(placedOrder.id())));
+        when(orderRepository.saveIdempotencyKey(eq("sanjay"), eq("key-1"), eq(21L), any(Instant.class))).thenReturn(Mono.just(1));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var submission = orderService.submitOrder(book.isbn(), 2, "sanjay", "key-1").toFuture();
+
+        verify(transactionalOperator, never()).transactional(any(Mono.class));
+        bookLookup.tryEmitValue(book);
+        assertThat(submission).isCompletedWithValue(placedOrder);
+        verify(transactionalOperator).transactional(any(Mono.class));
+    }
+
+    @Test
+    void whenDuplicateCommittedByAnotherInstanceThenItsOrderReturned() {
+        var book = new Book("1234567890", "Title", "Author", 9.90);
+        var placedOrder = new Order(22L, book.isbn(), "Title - Author", 9.90, 2, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1);
+        var submittedOrder = new Order(21L, book.isbn(), "Title - Author", 9.90, 2, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1);
+        when(orderRepository.findByIdempotencyKey("sanjay", "key-1")).thenReturn(Mono.empty(), Mono.just(submittedOrder));
+        when(bookClient.getBookByIsbn(book.isbn())).thenReturn(Mono.just(book));
+        when(orderRepository.save(any(Order.class))).thenReturn(Mono.just(placedOrder));
+        when(orderOutboxRepository.save(any(OrderOutboxMessage.class))).thenReturn(Mono.just(OrderOutboxMessage.of(placedOrder.id())));
+        when(orderRepository.saveIdempotencyKey(eq("sanjay"), eq("key-1"), eq(22L), any(Instant.class)))
+            .thenReturn(Mono.error(new DuplicateKeyException("order_idempotency_key_pkey")));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(orderService.submitOrder(book.isbn(), 2, "sanjay", "key-1")).expectNext(submittedOrder).verifyComplete();
+    }
+
+    @Test
+    void whenBatchSubmittedThenEachBookLookedUpOnceAndOrdersInsertedByChunk() {
+        bookshopProperties.getBatch().setChunkSize(2);
+        var book = new Book("1234567890", "Title", "Author", 9.90);
+        when(bookClient.getBookByIsbn(book.isbn())).thenReturn(Mono.just(book));
+        when(bookClient.getBookByIsbn("1234567899")).thenReturn(Mono.empty());
+        when(orderRepository.insertAll(any(), any(Instant.class), eq("sanjay")))
+            .thenReturn(
+                Flux.just(
+                    inserted(1, new Order(12L, book.isbn(), "Title - Author", 9.90, 2, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1)),
+                    inserted(0, new Order(13L, book.isbn(), "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, null, null, "sanjay", "sanjay", 1))
+                ),
+                Flux.just(inserted(0, new Order(14L, "1234567899", null, null, 3, OrderStatus.REJECTED, null, null, "sanjay", "sanjay", 1)))
+            );
+        when(orderOutboxRepository.insertAll(aryEq(new Long[] { 12L, 13L }), any(Instant.class))).thenReturn(Mono.just(2));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        var lines = List.of(new OrderLine(book.isbn(), 1), new OrderLine("1234567899", 3), new OrderLine(book.isbn(), 2));
+
+        StepVerifier
+            .create(orderService.submitOrders(lines, "sanjay"))
+            .expectNextMatches(result -> result.index() == 2 && result.order().id() == 12L)
+            .expectNextMatches(result -> result.index() == 0 && result.order().id() == 13L)
+            .expectNextMatches(result -> result.index() == 1 && result.order().status() == OrderStatus.REJECTED)
+            .verifyComplete();
+
+        verify(bookClient, times(1)).getBookByIsbn(book.isbn());
+        verify(orderOutboxRepository, times(1)).insertAll(any(), any(Instant.class));
+    }
+
+    @Test
+    void whenBatchHasTooManyLinesThenThrows() {
+        bookshopProperties.getBatch().setMaxLines(1);
+        var lines = List.of(new OrderLine("1234567890", 1), new OrderLine("1234567891", 1));
+
+        StepVerifier
+            .create(orderService.submitOrders(lines, "sanjay"))
+            .expectErrorSatisfies(error ->
+                assertThat(error).isInstanceOf(OrderBatchTooLargeException.class).hasMessage("No more than 1 orders can be submitted at once.")
+            )
+            .verify();
+        verifyNoInteractions(bookClient, orderRepository);
+    }
+
+    private static OrderBatchRepository.InsertedOrder inserted(int position, Order order) {
+        return new OrderBatchRepository.InsertedOrder(position, order);
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.sanjayrawat1.bookshop.order.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.boot.test.json.JacksonTester;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@JsonTest
+public class OrderDispatchedEventJsonTests {
+
+    @Autowired
+    private JacksonTester<OrderDispatchedEvent> json;
+
+    @Test
+    void testDeserializeSingleOrder() throws Exception {
+        var content = """
+                {
+                    "orderId": 394
+                }
+                """;
+        assertThat(this.json.parse(content).getObject()).isEqualTo(new OrderDispatchedMessage(394L));
+    }
+
+    @Test
+    void testDeserializeBatch() throws Exception {
+        var content = """
+                {
+                    "orderIds": [394, 395]
+                }
+                """;
+        assertThat(this.json.parse(content).getObject()).isEqualTo(new OrderDispatchedBatch(List.of(394L, 395L)));
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.sanjayrawat1.bookshop.order.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class OrderFunctionsTests {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private Channel channel;
+
+    private final BookshopProperties bookshopProperties = new BookshopProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final InFlightDispatches inFlightDispatches = new InFlightDispatches(meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        bookshopProperties.getDispatch().setRetryBackoff(Duration.ofMillis(1));
+        inFlightDispatches.start();
+    }
+
+    @Test
+    void whenOrdersDispatchedThenAppliedInBatchesAndAcknowledgedAfterwards() throws IOException {
+        bookshopProperties.getDispatch().setBatchSize(2);
+        bookshopProperties.getDispatch().setBatchWindow(Duration.ofMinutes(1));
+        when(orderService.dispatchOrders(List.of(1L, 2L))).thenReturn(Flux.empty());
+        when(orderService.dispatchOrders(List.of(3L))).thenReturn(Flux.empty());
+
+        dispatchOrder().accept(Flux.just(message(1L, 11), message(2L, 12), message(3L, 13)));
+
+        verify(channel).basicAck(11, false);
+        verify(channel).basicAck(12, false);
+        verify(channel).basicAck(13, false);
+        assertThat(meterRegistry.get("bookshop.dispatch.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void whenBatchFailsOnceThenRetriedWithBackoff() throws IOException {
+        when(orderService.dispatchOrders(List.of(1L)))
+            .thenReturn(Flux.error(new IllegalStateException("connection refused")))
+            .thenReturn(Flux.empty());
+
+        dispatchOrder().accept(Flux.just(message(1L, 11)));
+
+        verify(channel, timeout(5000)).basicAck(11, false);
+        verify(channel, never()).basicNack(11, false, false);
+    }
+
+    @Test
+    void whenOrderDispatchedEventKeepsFailingThenDeadLettered() throws IOException {
+        when(orderService.dispatchOrders(List.of(1L))).thenReturn(Flux.error(new IllegalStateException("connection refused")));
+
+        dispatchOrder().accept(Flux.just(message(1L, 11)));
+
+        verify(channel, timeout(5000)).basicNack(11, false, false);
+        verify(channel, never()).basicAck(11, false);
+    }
+
+    @Test
+    void whenEventCannotBeReadThenDeadLetteredAndOthersApplied() throws IOException {
+        bookshopProperties.getDispatch().setBatchSize(3);
+        var unreadable = MessageBuilder
+            .withPayload("{\"orderId\": \"not-a-number\"}".getBytes(StandardCharsets.UTF_8))
+            .setHeader(AmqpHeaders.CHANNEL, channel)
+            .setHeader(AmqpHeaders.DELIVERY_TAG, 12L)
+            .build();
+        when(orderService.dispatchOrders(List.of(1L, 3L))).thenReturn(Flux.empty());
+
+        dispatchOrder().accept(Flux.just(message(1L, 11), uncheckedCast(unreadable), message(3L, 13)));
+
+        verify(channel).basicAck(11, false);
+        verify(channel).basicNack(12, false, false);
+        verify(channel).basicAck(13, false);
+    }
+
+    @Test
+    void whenBatchKeepsFailingThenEventsAppliedOneAtATimeAndOnlyFailingOnesDeadLettered() throws IOException {
+        bookshopProperties.getDispatch().setBatchSize(2);
+        when(orderService.dispatchOrders(List.of(1L, 2L))).thenReturn(Flux.error(new IllegalStateException("deadlock detected")));
+        when(orderService.dispatchOrders(List.of(1L))).thenReturn(Flux.error(new IllegalStateException("deadlock detected")));
+        when(orderService.dispatchOrders(List.of(2L))).thenReturn(Flux.empty());
+
+        dispatchOrder().accept(Flux.just(message(1L, 11), message(2L, 12)));
+
+        verify(channel, timeout(5000)).basicNack(11, false, false);
+        verify(channel, timeout(5000)).basicAck(12, false);
+    }
+
+    @Test
+    void whenOrdersDispatchedInBatchesThenAppliedTogetherWithSingleOrders() throws IOException {
+        when(orderService.dispatchOrders(List.of(1L, 2L, 3L, 4L))).thenReturn(Flux.empty());
+
+        dispatchOrder().accept(Flux.just(message(new OrderDispatchedBatch(List.of(1L, 2L, 3L)), 11), message(4L, 12)));
+
+        verify(channel).basicAck(11, false);
+        verify(channel).basicAck(12, false);
+    }
+
+    @Test
+    void whenDrainingThenEventsLeftUnacknowledged() {
+        inFlightDispatches.stop(() -> {});
+
+        dispatchOrder().accept(Flux.just(message(1L, 11)));
+
+        verifyNoInteractions(orderService, channel);
+    }
+
+    @Test
+    void whenEventsInFlightThenDrainWaitsForThem() throws InterruptedException {
+        var drained = new CountDownLatch(1);
+        inFlightDispatches.admit();
+
+        inFlightDispatches.stop(drained::countDown);
+
+        assertThat(drained.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(inFlightDispatches.admit()).isFalse();
+        inFlightDispatches.settled(1);
+        assertThat(drained.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private Consumer<Flux<Message<OrderDispatchedEvent>>> dispatchOrder() {
+        return new OrderFunctions().dispatchOrder(orderService, bookshopProperties, inFlightDispatches);
+    }
+
+    /**
+     * Spring Cloud Function hands over the message received as is when its payload can't be converted to the type of the function.
+     */
+    @SuppressWarnings("unchecked")
+    private static Message<OrderDispatchedEvent> uncheckedCast(Message<?> message) {
+        return (Message<OrderDispatchedEvent>) message;
+    }
+
+    private Message<OrderDispatchedEvent> message(Long orderId, long deliveryTag) {
+        return message(new OrderDispatchedMessage(orderId), deliveryTag);
+    }
+
+    private Message<OrderDispatchedEvent> message(OrderDispatchedEvent event, long deliveryTag) {
+        return MessageBuilder
+            .<OrderDispatchedEvent>withPayload(event)
+            .setHeader(AmqpHeaders.CHANNEL, channel)
+            .setHeader(AmqpHeaders.DELIVERY_TAG, deliveryTag)
+            .build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.sanjayrawat1.bookshop.order.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.sanjayrawat1.bookshop.order.config.BookshopProperties;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderOutboxMessage;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderOutboxRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamOperations;
+import org.springframework.messaging.Message;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Sanjay Singh Rawat
+ */
+@ExtendWith(MockitoExtension.class)
+public class OrderOutboxRelayTests {
+
+    @Mock
+    private OrderOutboxRepository orderOutboxRepository;
+
+    @Mock
+    private StreamOperations streamBridge;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private BookshopProperties bookshopProperties = new BookshopProperties();
+
+    @InjectMocks
+    private OrderOutboxRelay orderOutboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void whenEventsConfirmedThenDeletedFromOutbox() {
+        var confirmed = new OrderOutboxMessage(1L, 10L, null);
+        var rejected = new OrderOutboxMessage(2L, 20L, null);
+        when(orderOutboxRepository.findNextBatch(100)).thenReturn(Flux.just(confirmed, rejected));
+        when(orderOutboxRepository.deleteAllById(List.of(1L))).thenReturn(Mono.empty());
+        when(streamBridge.send(eq("acceptOrder-out-0"), any(Message.class)))
+            .thenAnswer(invocation -> {
+                Message<?> message = invocation.getArgument(1);
+                var correlationData = (CorrelationData) message.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION);
+                var ack = message.getPayload().equals(new OrderAcceptedMessage(10L));
+                correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+                return true;
+            });
+
+        StepVerifier.create(orderOutboxRelay.relayPendingEvents()).expectNext(1).verifyComplete();
+
+        verify(orderOutboxRepository).deleteAllById(List.of(1L));
+    }
+
+    @Test
+    void whenBatchIsFullThenNextBatchRelayedWithoutWaiting() {
+        bookshopProperties.getOutbox().setBatchSize(1);
+        bookshopProperties.getOutbox().setPublisherConfirms(false);
+        when(orderOutboxRepository.findNextBatch(1))
+            .thenReturn(Flux.just(new OrderOutboxMessage(1L, 10L, null)), Flux.just(new OrderOutboxMessage(2L, 20L, null)), Flux.empty());
+        when(orderOutboxRepository.deleteAllById(any())).thenReturn(Mono.empty());
+        when(streamBridge.send(eq("acceptOrder-out-0"), any(Message.class))).thenReturn(true);
+
+        StepVerifier.create(orderOutboxRelay.relayPendingEvents()).expectNext(2).verifyComplete();
+
+        var messages = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge, times(2)).send(eq("acceptOrder-out-0"), messages.capture());
+        assertThat(messages.getAllValues())
+            .extracting(Message::getPayload)
+            .containsExactly(new OrderAcceptedMessage(10L), new OrderAcceptedMessage(20L));
+    }
+
+    @Test
+    void whenBrokerUnreachableThenEventsKeptInOutbox() {
+        when(orderOutboxRepository.findNextBatch(100)).thenReturn(Flux.just(new OrderOutboxMessage(1L, 10L, null)));
+        when(streamBridge.send(eq("acceptOrder-out-0"), any(Message.class))).thenThrow(new AmqpConnectException(new RuntimeException("refused")));
+
+        StepVerifier.create(orderOutboxRelay.relayPendingEvents()).expectNext(0).verifyComplete();
+
+        verify(orderOutboxRepository, never()).deleteAllById(any());
+    }
+}
@@ -4,18 +4,31 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
 
 import com.github.sanjayrawat1.bookshop.order.config.SecurityConfiguration;
+import com.github.sanjayrawat1.bookshop.order.domain.IdempotencyKeyReusedException;
 import com.github.sanjayrawat1.bookshop.order.domain.Order;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderBatchResult;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderBatchTooLargeException;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderCursor;
+import com.github.sanjayrawat1.bookshop.order.domain.OrderLine;
 import com.github.sanjayrawat1.bookshop.order.domain.OrderService;
 import com.github.sanjayrawat1.bookshop.order.domain.OrderStatus;
+import java.time.Instant;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -61,4 +74,157 @@ public class OrderControllerWebFluxTests {
                 assertThat(actualOrder.status()).isEqualTo(OrderStatus.REJECTED);
             });
     }
+
+    @Test
+    void whenIdempotencyKeySentThenOrderSubmittedOnceForKey() {
+        var orderRequest = new OrderRequest("1234567890", 3);
+        var expectedOrder = OrderService.buildRejectedOrder(orderRequest.isbn(), orderRequest.quantity());
+        given(orderService.submitOrder(orderRequest.isbn(), orderRequest.quantity(), "anup", "key-1")).willReturn(Mono.just(expectedOrder));
+
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.subject("anup")).authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .post()
+            .uri("/orders")
+            .header("Idempotency-Key", "key-1")
+            .bodyValue(orderRequest)
+            .exchange()
+            .expectStatus()
+            .is2xxSuccessful()
+            .expectBody(Order.class)
+            .isEqualTo(expectedOrder);
+    }
+
+    @Test
+    void whenIdempotencyKeyReusedForAnotherOrderThenUnprocessableEntity() {
+        var orderRequest = new OrderRequest("1234567890", 3);
+        given(orderService.submitOrder(orderRequest.isbn(), orderRequest.quantity(), "anup", "key-1"))
+            .willReturn(Mono.error(new IdempotencyKeyReusedException("key-1")));
+
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.subject("anup")).authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .post()
+            .uri("/orders")
+            .header("Idempotency-Key", "key-1")
+            .bodyValue(orderRequest)
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void whenBatchSubmittedThenResultsStreamedAsNdjson() {
+        var lines = List.of(new OrderLine("1234567890", 1), new OrderLine("1234567891", 2));
+        given(orderService.submitOrders(lines, "anup"))
+            .willReturn(
+                Flux.just(
+                    new OrderBatchResult(1, OrderService.buildRejectedOrder("1234567891", 2)),
+                    new OrderBatchResult(0, OrderService.buildRejectedOrder("1234567890", 1))
+                )
+            );
+
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.subject("anup")).authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .post()
+            .uri("/orders/batch")
+            .bodyValue(new OrderBatchRequest(List.of(new OrderRequest("1234567890", 1), new OrderRequest("1234567891", 2))))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBodyList(OrderBatchResult.class)
+            .value(results -> assertThat(results).extracting(OrderBatchResult::index).containsExactly(1, 0));
+    }
+
+    @Test
+    void whenBatchHasInvalidLineThenBadRequest() {
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .post()
+            .uri("/orders/batch")
+            .bodyValue(new OrderBatchRequest(List.of(new OrderRequest("1234567890", 1), new OrderRequest("", 1))))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void whenBatchTooLargeThenBadRequest() {
+        given(orderService.submitOrders(List.of(new OrderLine("1234567890", 1)), "anup")).willReturn(Flux.error(new OrderBatchTooLargeException(0)));
+
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.subject("anup")).authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .post()
+            .uri("/orders/batch")
+            .bodyValue(new OrderBatchRequest(List.of(new OrderRequest("1234567890", 1))))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void whenMoreOrdersThanLimitThenNextPageAdvertisedWithCursor() {
+        var createdDate = Instant.parse("2023-04-01T10:15:30.123456Z");
+        var order = new Order(21L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, createdDate, createdDate, "anup", "anup", 1);
+        given(orderService.getOrderHistory("anup", null, 1)).willReturn(Mono.just(new SliceImpl<>(List.of(order), PageRequest.ofSize(1), true)));
+        var nextCursor = OrderCursors.encode(new OrderCursor(createdDate, 21L));
+
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.subject("anup")).authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .get()
+            .uri("/orders?limit=1")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .value(HttpHeaders.LINK, link -> assertThat(link).endsWith("/orders?after=" + nextCursor + "&limit=1>; rel=\"next\""))
+            .expectBodyList(Order.class)
+            .hasSize(1);
+    }
+
+    @Test
+    void whenFollowingCursorThenPageAfterCursorReturned() {
+        var cursor = new OrderCursor(Instant.parse("2023-04-01T10:15:30.123456Z"), 21L);
+        given(orderService.getOrderHistory("anup", cursor, null)).willReturn(Mono.just(new SliceImpl<>(List.of(), PageRequest.ofSize(20), false)));
+
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.subject("anup")).authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .get()
+            .uri("/orders?after=" + OrderCursors.encode(cursor))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist(HttpHeaders.LINK);
+    }
+
+    @Test
+    void whenCursorIsMalformedThenBadRequest() {
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .get()
+            .uri("/orders?after=not-a-cursor")
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void whenOrdersExportedThenStreamedAsNdjson() {
+        var order = OrderService.buildRejectedOrder("1234567890", 1);
+        given(orderService.getAllOrders("anup")).willReturn(Flux.just(order, order));
+
+        testClient
+            .mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.subject("anup")).authorities(new SimpleGrantedAuthority(ROLE_CUSTOMER)))
+            .get()
+            .uri("/orders")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBodyList(Order.class)
+            .hasSize(2);
+    }
 }
@@ -4,6 +4,7 @@ plugins {
     id("io.spring.dependency-management") version "1.1.0"
     id("org.graalvm.buildtools.native") version "0.9.20"
     id("com.diffplug.spotless") version "6.16.0"
+    id("me.champeau.jmh") version "0.7.0"
 }
 
 group = "com.github.sanjayrawat1.bookshop"
@@ -56,6 +57,17 @@ tasks.bootBuildImage {
     }
 }
 
+jmh {
+    jmhVersion.set("1.36")
+    // a single fork with a short warmup keeps a full run within minutes, while still letting the JIT compile the hot paths.
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // machine-readable results, so that the runs of two commits can be diffed (e.g. with JMH Visualizer).
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
 spotless {
     java {
         toggleOffOn()
@@ -0,0 +1,33 @@
+package com.github.sanjayrawat1.bookshop.quoteservice.domain;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures picking a random quote of a genre, including the subscription to the returned Mono.
+ * <p>
+ * Run with {@code ./gradlew jmh}, the results are written to build/results/jmh/results.json.
+ *
+ * @author Sanjay Singh Rawat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuoteServiceBenchmark {
+
+    private final QuoteService quoteService = new QuoteService();
+
+    @Param({ "ADVENTURE", "FANTASY", "SCIENCE_FICTION" })
+    private Genre genre;
+
+    @Benchmark
+    public Quote getRandomQuoteByGenre() {
+        return quoteService.getRandomQuoteByGenre(genre).block();
+    }
+}